@@ -17,7 +17,9 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "buyers")
+@Table(name = "buyers", indexes = {
+        @Index(columnList = "currentBalance")
+})
 public class Buyer {
 
     @Id
@@ -0,0 +1,24 @@
+package com.tradesystem.buyer;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+public class BuyerBalance {
+
+    private Long buyerId;
+    private BigDecimal balance;
+
+    public BuyerBalance(Long buyerId, BigDecimal notUsedSum, BigDecimal negativeSum, BigDecimal notPaidSum) {
+        this.buyerId = buyerId;
+        this.balance = orZero(notUsedSum)
+                .add(orZero(negativeSum))
+                .subtract(orZero(notPaidSum));
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+}
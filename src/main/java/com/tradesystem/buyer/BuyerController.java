@@ -1,25 +1,30 @@
 package com.tradesystem.buyer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tradesystem.invoice.*;
-import com.tradesystem.order.Order;
 import com.tradesystem.order.OrderDto;
 import com.tradesystem.order.OrderMapper;
+import com.tradesystem.order.OrderRow;
 import com.tradesystem.order.OrderService;
+import com.tradesystem.pagination.KeysetPage;
+import com.tradesystem.pagination.NdjsonWriter;
 import com.tradesystem.price.Price;
 import com.tradesystem.price.PriceDto;
 import com.tradesystem.price.PriceMapper;
-import com.tradesystem.user.RoleSecurity;
+import com.tradesystem.security.UserRole;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @Log4j2
 @RestController
+@UserRole
 @RequestMapping("/buyer")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class BuyerController {
@@ -31,7 +36,7 @@ public class BuyerController {
     private OrderMapper orderMapper;
     private InvoiceService invoiceService;
     private InvoiceMapper invoiceMapper;
-    private RoleSecurity roleSecurity;
+    private ObjectMapper objectMapper;
 
     private Logger logger = LogManager.getLogger(BuyerController.class);
 
@@ -39,7 +44,7 @@ public class BuyerController {
     public BuyerController(BuyerService buyerService, BuyerMapper buyerMapper,
                            PriceMapper priceMapper, OrderService orderService,
                            OrderMapper orderMapper, InvoiceService invoiceService,
-                           InvoiceMapper invoiceMapper, RoleSecurity roleSecurity) {
+                           InvoiceMapper invoiceMapper, ObjectMapper objectMapper) {
         this.buyerService = buyerService;
         this.buyerMapper = buyerMapper;
         this.priceMapper = priceMapper;
@@ -47,16 +52,13 @@ public class BuyerController {
         this.orderMapper = orderMapper;
         this.invoiceService = invoiceService;
         this.invoiceMapper = invoiceMapper;
-        this.roleSecurity = roleSecurity;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/create")
     public BuyerDto createBuyer(@RequestBody BuyerDto buyerDto) {
         logger.info("Dodawanie kupca: " + buyerDto);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         final Buyer buyer = buyerService.createBuyer(buyerDto);
 
         return buyerMapper.toDto(buyer);
@@ -69,9 +71,24 @@ public class BuyerController {
         return buyerMapper.toDto(buyers);
     }
 
+    @GetMapping("/getPage")
+    public KeysetPage<BuyerDto> getPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                        @RequestParam(value = "size", required = false) Integer size) {
+        return buyerService.getPage(cursor, size)
+                .map(buyerMapper::toDto);
+    }
+
+    @GetMapping("/stream")
+    public void stream(HttpServletResponse response) throws IOException {
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, response);
+
+        buyerService.streamAll(buyer -> writer.write(buyerMapper.toDto(buyer)));
+        writer.flush();
+    }
+
     @GetMapping("/getAllWithBalances")
     public List<BuyerDto> getAllWithRefreshedBalances(){
-        final List<Buyer> buyers = buyerService.calculateAndSetBalances();
+        final List<Buyer> buyers = buyerService.getAllWithBalances();
 
         return buyerMapper.toDto(buyers);
     }
@@ -102,8 +119,8 @@ public class BuyerController {
         int m = Integer.valueOf(month);
         int y = Integer.valueOf(year);
 
-        List<Order> orders = orderService.getBuyerMonthOrders(id, m, y);
-        return orderMapper.toDto(orders);
+        List<OrderRow> orderRows = orderService.getBuyerMonthOrderRows(id, m, y);
+        return orderMapper.fromRows(orderRows);
     }
 
     @PutMapping("/updateBuyerName")
@@ -112,9 +129,6 @@ public class BuyerController {
 
         logger.info("Aktualizacja nazwy kupca z: " + oldBuyerName + " na: " + newBuyerName);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         Buyer buyer = buyerService.updateBuyerName(oldBuyerName, newBuyerName);
         return buyerMapper.toDto(buyer);
     }
@@ -1,11 +1,62 @@
 package com.tradesystem.buyer;
 
 
+import com.tradesystem.pagination.EntityStreamer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface BuyerDao extends JpaRepository<Buyer, Long> {
 
+    /**
+     * Balance of a buyer: open paid invoices and the negative invoice less invoices not paid yet.
+     */
+    String BALANCE_SELECT = "SELECT new com.tradesystem.buyer.BuyerBalance(b.id, " +
+            "SUM(CASE WHEN i.isUsed = false AND i.isPaid = true AND i.isCreatedToOrder = false THEN i.amountToUse ELSE 0 END), " +
+            "SUM(CASE WHEN i.amountToUse < 0 AND i.isUsed = false THEN i.amountToUse ELSE 0 END), " +
+            "SUM(CASE WHEN i.isPaid = false AND i.value > 0 AND i.toEqualizeNegativeInvoice = false THEN i.value ELSE 0 END)) " +
+            "FROM Buyer b LEFT JOIN b.invoices i ";
+
     Buyer findByName(String name);
+
+    @Query(value = "SELECT b.id FROM Buyer b WHERE b.id IN ?1")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query(value = BALANCE_SELECT + "GROUP BY b.id")
+    List<BuyerBalance> getBalances();
+
+    @Query(value = BALANCE_SELECT + "WHERE b.id IN ?1 GROUP BY b.id")
+    List<BuyerBalance> getBalances(Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT b FROM Buyer b WHERE b.id IN ?1 ORDER BY b.id")
+    List<Buyer> lockByIds(Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "UPDATE Buyer b SET b.currentBalance = ?2 WHERE b.id = ?1")
+    int setCurrentBalance(Long id, BigDecimal currentBalance);
+
+    @Query(value = "SELECT SUM(b.currentBalance) FROM Buyer b WHERE b.currentBalance < 0")
+    BigDecimal sumNegativeBalances();
+
+    @Query(value = "SELECT b FROM Buyer b WHERE b.id > ?1 ORDER BY b.id")
+    List<Buyer> getPageAfter(Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EntityStreamer.FETCH_SIZE))
+    @Query(value = "SELECT b FROM Buyer b ORDER BY b.id")
+    Stream<Buyer> streamAll();
 }
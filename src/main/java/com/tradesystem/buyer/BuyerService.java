@@ -1,10 +1,10 @@
 package com.tradesystem.buyer;
 
-import com.tradesystem.invoice.Invoice;
-import com.tradesystem.invoice.InvoiceDao;
-import com.tradesystem.order.Order;
-import com.tradesystem.order.OrderDao;
-import com.tradesystem.order.OrderService;
+import com.tradesystem.orderfact.OrderFactStore;
+import com.tradesystem.orderfact.OrderFactTotals;
+import com.tradesystem.pagination.EntityStreamer;
+import com.tradesystem.pagination.KeysetCursor;
+import com.tradesystem.pagination.KeysetPage;
 import com.tradesystem.price.Price;
 import com.tradesystem.price.PriceDao;
 import org.springframework.stereotype.Service;
@@ -14,23 +14,22 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class BuyerService {
 
-    private InvoiceDao invoiceDao;
     private BuyerDao buyerDao;
     private PriceDao priceDao;
-    private OrderService orderService;
-    private OrderDao orderDao;
+    private EntityStreamer entityStreamer;
+    private OrderFactStore orderFactStore;
 
-    public BuyerService(InvoiceDao invoiceDao, BuyerDao buyerDao,
-                        PriceDao priceDao, OrderService orderService, OrderDao orderDao) {
-        this.invoiceDao = invoiceDao;
+    public BuyerService(BuyerDao buyerDao, PriceDao priceDao, EntityStreamer entityStreamer,
+                        OrderFactStore orderFactStore) {
         this.buyerDao = buyerDao;
         this.priceDao = priceDao;
-        this.orderService = orderService;
-        this.orderDao = orderDao;
+        this.entityStreamer = entityStreamer;
+        this.orderFactStore = orderFactStore;
     }
 
 
@@ -39,6 +38,7 @@ public class BuyerService {
         if (validateBuyer(buyerDto)) {
             Buyer buyer = Buyer.builder()
                     .name(buyerDto.getName())
+                    .currentBalance(BigDecimal.ZERO)
                     .build();
 
             return buyerDao.save(buyer);
@@ -46,16 +46,9 @@ public class BuyerService {
         throw new RuntimeException("Nie można stworzyć kupca");
     }
 
-    @Transactional
-    public List<Buyer> calculateAndSetBalances() {
-        List<Buyer> buyers = buyerDao.findAll();
-
-        for (Buyer buyer : buyers) {
-            BigDecimal currentBalance = calculateCurrentBalance(buyer);
-            buyer.setCurrentBalance(currentBalance);
-        }
-
-        return buyers;
+    @Transactional(readOnly = true)
+    public List<Buyer> getAllWithBalances() {
+        return buyerDao.findAll();
     }
 
     @Transactional
@@ -63,38 +56,34 @@ public class BuyerService {
         return buyerDao.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public KeysetPage<Buyer> getPage(String cursor, Integer size) {
+        int pageSize = KeysetCursor.size(size);
+        List<Buyer> rows = buyerDao.getPageAfter(KeysetCursor.decode(cursor), KeysetCursor.limit(pageSize));
+
+        return KeysetPage.of(rows, pageSize, Buyer::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public int streamAll(Consumer<Buyer> action) {
+        return entityStreamer.forEach(buyerDao.streamAll(), action);
+    }
+
     @Transactional
     public List<Price> getBuyerProducts(Long id) {
         return priceDao.getBuyerProducts(id);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Buyer> getAllWithAverageEarning(int month, int year) {
-
-        Set<Buyer> buyers = new HashSet<>();
-        Set<Order> orders = orderService.getMonthOrders(month, year);
-
-        for (Order order : orders) {
-            buyers.add(order.getBuyer());
-        }
-
+        Map<Long, OrderFactTotals> buyerTotals = orderFactStore.getMonth(month, year).getBuyerTotals();
         List<Buyer> resultList = new ArrayList<>();
 
-        for (Buyer buyer : buyers) {
-            List<Order> buyerOrders = orderService.getBuyerMonthOrders(buyer.getId(), month, year);
-
-            BigDecimal totalBuyerSum = BigDecimal.valueOf(0);
-            BigDecimal totalSupplierSum = BigDecimal.valueOf(0);
-            BigDecimal totalQuantity = BigDecimal.valueOf(0);
+        for (Buyer buyer : buyerDao.findAllById(buyerTotals.keySet())) {
+            OrderFactTotals totals = buyerTotals.get(buyer.getId());
 
-            for (Order order : buyerOrders) {
-
-                totalBuyerSum = totalBuyerSum.add(order.getOrderDetails().get(0).getBuyerSum());
-                totalSupplierSum = totalSupplierSum.add(order.getOrderDetails().get(0).getSupplierSum());
-                totalQuantity = totalQuantity.add(order.getOrderDetails().get(0).getQuantity());
-            }
-            BigDecimal difference = totalBuyerSum.subtract(totalSupplierSum);
-            BigDecimal profitPerM3 = difference.divide(totalQuantity, RoundingMode.HALF_EVEN);
+            BigDecimal difference = totals.getBuyerSum().subtract(totals.getSupplierSum());
+            BigDecimal profitPerM3 = difference.divide(totals.getQuantity(), RoundingMode.HALF_EVEN);
 
             buyer.setAverageProfitPerM3(profitPerM3);
             resultList.add(buyer);
@@ -110,49 +99,18 @@ public class BuyerService {
         return buyerDao.save(buyer);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Buyer> getBuyersMonthTakenQuantity(int month, int year) {
         List<Buyer> buyers = buyerDao.findAll();
+        Map<Long, OrderFactTotals> buyerTotals = orderFactStore.getMonth(month, year).getBuyerTotals();
 
         for (Buyer buyer : buyers) {
-            List<Order> orders = orderDao.getBuyerMonthOrders(buyer.getId(), month, year);
-            BigDecimal sumQuantity = BigDecimal.valueOf(0);
-
-            for (Order order : orders) {
-                sumQuantity = sumQuantity.add(order.getOrderDetails().get(0).getQuantity());
-            }
-
-            buyer.setMonthTakenQuantity(sumQuantity);
+            OrderFactTotals totals = buyerTotals.get(buyer.getId());
+            buyer.setMonthTakenQuantity(totals != null ? totals.getQuantity() : BigDecimal.valueOf(0));
         }
         return buyers;
     }
 
-    private BigDecimal calculateCurrentBalance(Buyer buyer) {
-            List<Invoice> notUsedInvoices = invoiceDao.getBuyerNotUsedInvoices(buyer.getId());
-
-            BigDecimal balance = BigDecimal.valueOf(0);
-
-            for (Invoice invoice : notUsedInvoices) {
-                if (invoice.isCreatedToOrder()) {
-                    balance = balance.subtract(invoice.getValue());
-                }
-                balance = balance.add(invoice.getAmountToUse());
-            }
-
-            Optional<Invoice> negativeInvoice = invoiceDao.getBuyerNegativeInvoice(buyer.getId());
-            if (negativeInvoice.isPresent()) {
-                balance = balance.add(negativeInvoice.get().getAmountToUse());
-            }
-
-            Optional<List<Invoice>> notPaidInvoices = invoiceDao.getBuyerNotPaidInvoices(buyer.getId());
-            if (notPaidInvoices.isPresent()) {
-                for (Invoice invoice : notPaidInvoices.get()) {
-                    balance = balance.subtract(invoice.getValue());
-                }
-            }
-        return balance;
-    }
-
     private boolean validateBuyer(BuyerDto buyerDto) {
         if (buyerDto.getName() == null || buyerDto.getName().equals("")) {
             return false;
@@ -1,5 +1,6 @@
 package com.tradesystem.cost;
 
+import com.tradesystem.persistence.IdGenerators;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,11 +15,14 @@ import java.time.LocalDate;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "costs")
+@Table(name = "costs", indexes = @Index(columnList = "date"))
 public class Cost {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.COSTS)
+    @TableGenerator(name = IdGenerators.COSTS, table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.COSTS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long costId;
 
     private String name;
@@ -1,33 +1,30 @@
 package com.tradesystem.cost;
 
-import com.tradesystem.user.RoleSecurity;
+import com.tradesystem.security.UserRole;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
 @Log4j2
 @RestController
+@UserRole
 @RequestMapping("/cost")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class CostController {
 
     private CostMapper costMapper;
     private CostService costService;
-    private RoleSecurity roleSecurity;
 
     private Logger logger = LogManager.getLogger(CostController.class);
 
 
-    public CostController(CostMapper costMapper, CostService costService, RoleSecurity roleSecurity) {
+    public CostController(CostMapper costMapper, CostService costService) {
         this.costMapper = costMapper;
         this.costService = costService;
-        this.roleSecurity = roleSecurity;
     }
 
 /*
@@ -45,9 +42,6 @@ public class CostController {
     public CostDto create(@RequestBody CostDto costDto) {
         logger.info("Dodanie kosztu: " + costDto);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         final Cost cost = costService.createCost(costDto);
 
         return costMapper.toDto(cost);
@@ -68,9 +62,6 @@ public class CostController {
     public void delete(@RequestParam(value = "name") String name) {
         logger.info("Usuwanie kosztu: " + name);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         costService.deleteCost(name);
 
     }
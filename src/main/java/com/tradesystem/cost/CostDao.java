@@ -1,23 +1,47 @@
 package com.tradesystem.cost;
 
+import com.tradesystem.period.DatePeriod;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
 public interface CostDao extends JpaRepository<Cost, Long> {
 
     @Query(value = "SELECT * FROM costs " +
-            "WHERE MONTH(costs.date) = ?1 AND YEAR(costs.date) = ?2",
+            "WHERE costs.date >= ?1 AND costs.date < ?2",
             nativeQuery = true)
-    List<Cost> getMonthCosts(int month, int year);
+    List<Cost> getMonthCosts(LocalDate start, LocalDate end);
+
+    default List<Cost> getMonthCosts(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getMonthCosts(period.getStart(), period.getEnd());
+    }
 
     @Query(value = "SELECT * FROM costs " +
-            "WHERE YEAR(costs.date) = ?1",
+            "WHERE costs.date >= ?1 AND costs.date < ?2",
             nativeQuery = true)
-    List<Cost> getYearCosts(int year);
+    List<Cost> getYearCosts(LocalDate start, LocalDate end);
+
+    default List<Cost> getYearCosts(int year) {
+        DatePeriod period = DatePeriod.ofYear(year);
+        return getYearCosts(period.getStart(), period.getEnd());
+    }
+
+    @Query(value = "SELECT SUM(c.value) FROM Cost c " +
+            "WHERE c.date >= ?1 AND c.date < ?2")
+    BigDecimal sumMonthCosts(LocalDate start, LocalDate end);
+
+    default BigDecimal sumMonthCosts(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return sumMonthCosts(period.getStart(), period.getEnd());
+    }
+
+    List<Cost> findByName(String name);
 
     void deleteByName(String name);
 }
@@ -1,5 +1,6 @@
 package com.tradesystem.cost;
 
+import com.tradesystem.report.ReportLedgerService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -9,10 +10,12 @@ import java.util.List;
 public class CostService {
 
     private CostDao costDao;
+    private ReportLedgerService reportLedgerService;
 
 
-    public CostService(CostDao costDao) {
+    public CostService(CostDao costDao, ReportLedgerService reportLedgerService) {
         this.costDao = costDao;
+        this.reportLedgerService = reportLedgerService;
     }
 /*
     Additional functionality for later, to add list of costs
@@ -43,13 +46,18 @@ public class CostService {
                     .date(costDto.getDate())
                     .build();
 
-            return costDao.save(cost);
+            Cost savedCost = costDao.save(cost);
+            reportLedgerService.addCost(savedCost.getDate(), savedCost.getValue());
+            return savedCost;
         }
         throw new RuntimeException("Can't create cost");
     }
 
     @Transactional
     public void deleteCost(String name) {
+        for (Cost cost : costDao.findByName(name)) {
+            reportLedgerService.subtractCost(cost.getDate(), cost.getValue());
+        }
         costDao.deleteByName(name);
     }
 
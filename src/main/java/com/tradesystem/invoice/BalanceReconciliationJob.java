@@ -0,0 +1,33 @@
+package com.tradesystem.invoice;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Repairs stored merchant balances on startup, which also fills them on databases
+ * created before they were maintained, and then once a night.
+ */
+@Component
+public class BalanceReconciliationJob {
+
+    private MerchantBalanceService merchantBalanceService;
+
+
+    public BalanceReconciliationJob(MerchantBalanceService merchantBalanceService) {
+        this.merchantBalanceService = merchantBalanceService;
+    }
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        merchantBalanceService.reconcile();
+    }
+
+    @Scheduled(cron = "${balance.reconciliation.cron:0 30 2 * * *}")
+    public void reconcile() {
+        merchantBalanceService.reconcile();
+    }
+
+}
@@ -2,6 +2,7 @@ package com.tradesystem.invoice;
 
 import com.tradesystem.buyer.Buyer;
 import com.tradesystem.payment.Payment;
+import com.tradesystem.persistence.IdGenerators;
 import com.tradesystem.supplier.Supplier;
 import lombok.*;
 
@@ -16,11 +17,20 @@ import java.util.List;
 @Setter
 @Builder
 @AllArgsConstructor
-@Table(name = "invoices")
+@Table(name = "invoices", indexes = {
+        @Index(columnList = "buyer_fk, date"),
+        @Index(columnList = "supplier_fk, date"),
+        @Index(columnList = "date"),
+        @Index(columnList = "isUsed, isPaid, date")
+})
+@EntityListeners(InvoiceBalanceListener.class)
 public class Invoice {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.INVOICES)
+    @TableGenerator(name = IdGenerators.INVOICES, table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.INVOICES, allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "invoice_id")
     private Long id;
 
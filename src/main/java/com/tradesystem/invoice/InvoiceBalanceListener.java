@@ -0,0 +1,39 @@
+package com.tradesystem.invoice;
+
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+
+/**
+ * Reports invoice writes to MerchantBalanceService. Created by Hibernate through the
+ * Spring bean container, the service is looked up lazily because the listener is built
+ * together with the entity manager factory the service depends on.
+ */
+public class InvoiceBalanceListener {
+
+    private ObjectProvider<MerchantBalanceService> merchantBalanceService;
+
+
+    public InvoiceBalanceListener(ObjectProvider<MerchantBalanceService> merchantBalanceService) {
+        this.merchantBalanceService = merchantBalanceService;
+    }
+
+
+    @PostLoad
+    @PrePersist
+    public void watch(Invoice invoice) {
+        merchantBalanceService.getObject().watch();
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void touch(Invoice invoice) {
+        merchantBalanceService.getObject().touch(invoice);
+    }
+
+}
@@ -1,20 +1,25 @@
 package com.tradesystem.invoice;
 
-import com.tradesystem.user.RoleSecurity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradesystem.pagination.KeysetPage;
+import com.tradesystem.pagination.NdjsonWriter;
+import com.tradesystem.security.AdminRole;
+import com.tradesystem.security.UserRole;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Log4j2
 @RestController
+@UserRole
 @RequestMapping("/invoice")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class InvoiceController {
@@ -23,26 +28,27 @@ public class InvoiceController {
 
     private InvoiceService invoiceService;
     private InvoiceMapper invoiceMapper;
-    private RoleSecurity roleSecurity;
+    private ObjectMapper objectMapper;
     private UpdateInvoiceService updateInvoiceService;
+    private MerchantBalanceService merchantBalanceService;
 
     private Logger logger = LogManager.getLogger(InvoiceController.class);
 
 
 
     public InvoiceController(InvoiceService invoiceService, InvoiceMapper invoiceMapper,
-                             RoleSecurity roleSecurity, UpdateInvoiceService updateInvoiceService) {
+                             UpdateInvoiceService updateInvoiceService,
+                             MerchantBalanceService merchantBalanceService,
+                             ObjectMapper objectMapper) {
         this.invoiceService = invoiceService;
         this.invoiceMapper = invoiceMapper;
-        this.roleSecurity = roleSecurity;
+        this.objectMapper = objectMapper;
         this.updateInvoiceService = updateInvoiceService;
+        this.merchantBalanceService = merchantBalanceService;
     }
 
     @PostMapping("/create")
     public InvoiceDto create(@RequestBody InvoiceDto invoiceDto) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         logger.info("Dodawanie faktury: " + invoiceDto);
 
         final Invoice invoice = invoiceService.createInvoice(invoiceDto);
@@ -53,12 +59,7 @@ public class InvoiceController {
     public void payForInvoice(@RequestParam(value = "id") String id) {
         logger.info("Płacenie za fakturę o id: " + id);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
-        Long invoiceId = Long.valueOf(id);
-
-        invoiceService.payForInvoice(invoiceId);
+        invoiceService.payForInvoice(Long.valueOf(id));
     }
 
     @GetMapping("/get")
@@ -85,21 +86,33 @@ public class InvoiceController {
         return invoiceMapper.toDto(invoices);
     }
 
+    @GetMapping("/getPage")
+    public KeysetPage<InvoiceDto> getPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                          @RequestParam(value = "size", required = false) Integer size) {
+        return invoiceService.getPage(cursor, size)
+                .map(invoiceMapper::toDto);
+    }
+
+    @GetMapping("/stream")
+    public void stream(HttpServletResponse response) throws IOException {
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, response);
+
+        invoiceService.streamAll(invoice -> writer.write(invoiceMapper.toDto(invoice)));
+        writer.flush();
+    }
+
     @PostMapping("/transfer")
-    public void transferInvoicesToNextMonth(@RequestParam(value = "localDate", required = false)
+    public InvoiceTransferResult transferInvoicesToNextMonth(@RequestParam(value = "localDate", required = false)
                                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String localDate) {
 
         logger.info("Przenoszenie faktury na następny miesiąc. Otrzymana data w requescie: " + localDate);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         int year = Integer.valueOf(localDate.substring(0, 4));
         int month = Integer.valueOf(localDate.substring(5, 7));
 
         LocalDate currentDate = LocalDate.of(year, month, 15);
 
-        invoiceService.transferInvoicesToNextMonth(currentDate);
+        return invoiceService.transferInvoicesToNextMonth(currentDate);
     }
 
     @GetMapping("/getBuyersPositiveBalance")
@@ -132,11 +145,16 @@ public class InvoiceController {
     public InvoiceDto updateInvoice(@RequestBody UpdateInvoiceRequest updateInvoiceRequest) {
         logger.info("Aktualizacja faktury: " + updateInvoiceRequest);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         Invoice invoice = updateInvoiceService.updateInvoice(updateInvoiceRequest);
 
         return invoiceMapper.toDto(invoice);
     }
+
+    @AdminRole
+    @PostMapping("/reconcileBalances")
+    public int reconcileBalances() {
+        logger.info("Uzgadnianie sald kupców i dostawców");
+
+        return merchantBalanceService.reconcile();
+    }
 }
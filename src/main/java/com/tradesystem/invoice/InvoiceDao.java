@@ -1,13 +1,27 @@
 package com.tradesystem.invoice;
 
-import java.util.List;
-import java.util.Optional;
-
+import com.tradesystem.pagination.EntityStreamer;
+import com.tradesystem.period.DatePeriod;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository("invoiceDao")
 public interface InvoiceDao extends JpaRepository<Invoice, Long> {
 
@@ -20,9 +34,14 @@ public interface InvoiceDao extends JpaRepository<Invoice, Long> {
 
 
     @Query(value = "SELECT * FROM invoices " +
-            "WHERE MONTH(invoices.date) = ?1 AND YEAR(invoices.date) = ?2 AND value > 0",
+            "WHERE invoices.date >= ?1 AND invoices.date < ?2 AND value > 0",
             nativeQuery = true)
-    List<Invoice> getMonthInvoices(int month, int year);
+    List<Invoice> getMonthInvoices(LocalDate start, LocalDate end);
+
+    default List<Invoice> getMonthInvoices(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getMonthInvoices(period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT * FROM invoices " +
@@ -56,14 +75,24 @@ public interface InvoiceDao extends JpaRepository<Invoice, Long> {
      */
 
     @Query(value = "SELECT * FROM invoices i " +
-            "WHERE buyer_fk = ?1 AND MONTH(i.date) = ?2 AND YEAR(i.date) = ?3 AND value > 0",
+            "WHERE buyer_fk = ?1 AND i.date >= ?2 AND i.date < ?3 AND value > 0",
             nativeQuery = true)
-    List<Invoice> getBuyerMonthInvoices(Long buyerId, int month, int year);
+    List<Invoice> getBuyerMonthInvoices(Long buyerId, LocalDate start, LocalDate end);
+
+    default List<Invoice> getBuyerMonthInvoices(Long buyerId, int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getBuyerMonthInvoices(buyerId, period.getStart(), period.getEnd());
+    }
 
     @Query(value = "SELECT * FROM invoices i " +
-            "WHERE buyer_fk IS NOT NULL AND MONTH(i.date) = ?1 AND YEAR(i.date) = ?2 AND value > 0",
+            "WHERE buyer_fk IS NOT NULL AND i.date >= ?1 AND i.date < ?2 AND value > 0",
             nativeQuery = true)
-    List<Invoice> getBuyersMonthInvoices(int month, int year);
+    List<Invoice> getBuyersMonthInvoices(LocalDate start, LocalDate end);
+
+    default List<Invoice> getBuyersMonthInvoices(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getBuyersMonthInvoices(period.getStart(), period.getEnd());
+    }
 
     @Query(value = "SELECT * FROM invoices " +
             "INNER JOIN buyers ON invoices.buyer_fk = buyers.buyer_id " +
@@ -104,25 +133,52 @@ public interface InvoiceDao extends JpaRepository<Invoice, Long> {
     @Query(value = "SELECT * FROM invoices " +
             "INNER JOIN buyers ON invoices.buyer_fk = buyers.buyer_id " +
             "WHERE is_used = false AND amount_to_use > 0 AND is_paid = true " +
-            "AND MONTH(invoices.date) = ?1 AND YEAR(invoices.date) = ?2",
+            "AND invoices.date >= ?1 AND invoices.date < ?2",
             nativeQuery = true)
-    Optional<List<Invoice>> getBuyersMonthNotUsedPositivesInvoices(int month, int year);
+    Optional<List<Invoice>> getBuyersMonthNotUsedPositivesInvoices(LocalDate start, LocalDate end);
+
+    default Optional<List<Invoice>> getBuyersMonthNotUsedPositivesInvoices(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getBuyersMonthNotUsedPositivesInvoices(period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT * FROM invoices " +
             "INNER JOIN buyers ON invoices.buyer_fk = buyers.buyer_id " +
             "WHERE value > 0 AND buyer_fk IS NOT NULL AND is_paid = false AND is_created_to_order = false " +
-            "AND MONTH(invoices.date) = ?1 AND YEAR(invoices.date) = ?2",
+            "AND invoices.date >= ?1 AND invoices.date < ?2",
             nativeQuery = true)
-    Optional<List<Invoice>> getBuyersMonthNotPaidInvoicesNotCreatedToOrder(int month, int year);
+    Optional<List<Invoice>> getBuyersMonthNotPaidInvoicesNotCreatedToOrder(LocalDate start, LocalDate end);
+
+    default Optional<List<Invoice>> getBuyersMonthNotPaidInvoicesNotCreatedToOrder(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getBuyersMonthNotPaidInvoicesNotCreatedToOrder(period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT * FROM invoices " +
             "INNER JOIN buyers ON invoices.buyer_fk = buyers.buyer_id " +
             "WHERE value > 0 AND buyer_fk IS NOT NULL AND is_paid = false AND is_created_to_order = true " +
-            "AND MONTH(invoices.date) = ?1 AND YEAR(invoices.date) = ?2",
+            "AND invoices.date >= ?1 AND invoices.date < ?2",
             nativeQuery = true)
-    Optional<List<Invoice>> getBuyersMonthNotPaidInvoicesCreatedToOrder(int month, int year);
+    Optional<List<Invoice>> getBuyersMonthNotPaidInvoicesCreatedToOrder(LocalDate start, LocalDate end);
+
+    default Optional<List<Invoice>> getBuyersMonthNotPaidInvoicesCreatedToOrder(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getBuyersMonthNotPaidInvoicesCreatedToOrder(period.getStart(), period.getEnd());
+    }
+
+
+    @Query(value = "SELECT SUM(CASE WHEN i.isCreatedToOrder = true THEN i.value ELSE i.amountToUse END) " +
+            "FROM Invoice i " +
+            "WHERE i.buyer IS NOT NULL AND i.value > 0 AND i.isPaid = false " +
+            "AND i.date >= ?1 AND i.date < ?2")
+    BigDecimal sumBuyersMonthNotPaidInvoices(LocalDate start, LocalDate end);
+
+    default BigDecimal sumBuyersMonthNotPaidInvoices(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return sumBuyersMonthNotPaidInvoices(period.getStart(), period.getEnd());
+    }
 
 
 
@@ -131,16 +187,26 @@ public interface InvoiceDao extends JpaRepository<Invoice, Long> {
     @Query(value = "SELECT * FROM invoices " +
             "INNER JOIN buyers ON invoices.buyer_fk = buyers.buyer_id " +
             "WHERE value > 0 AND buyer_fk IS NOT NULL AND is_paid = false AND is_created_to_order = true " +
-            "AND YEAR(invoices.date) = ?1",
+            "AND invoices.date >= ?1 AND invoices.date < ?2",
             nativeQuery = true)
-    Optional<List<Invoice>> getBuyersYearNotPaidInvoicesCreatedToOrder(int year);
+    Optional<List<Invoice>> getBuyersYearNotPaidInvoicesCreatedToOrder(LocalDate start, LocalDate end);
+
+    default Optional<List<Invoice>> getBuyersYearNotPaidInvoicesCreatedToOrder(int year) {
+        DatePeriod period = DatePeriod.ofYear(year);
+        return getBuyersYearNotPaidInvoicesCreatedToOrder(period.getStart(), period.getEnd());
+    }
 
     @Query(value = "SELECT * FROM invoices " +
             "INNER JOIN buyers ON invoices.buyer_fk = buyers.buyer_id " +
             "WHERE value > 0 AND buyer_fk IS NOT NULL AND is_paid = false AND is_created_to_order = false " +
-            "AND YEAR(invoices.date) = ?1",
+            "AND invoices.date >= ?1 AND invoices.date < ?2",
             nativeQuery = true)
-    Optional<List<Invoice>> getBuyersYearNotPaidInvoicesNotCreatedToOrder(int year);
+    Optional<List<Invoice>> getBuyersYearNotPaidInvoicesNotCreatedToOrder(LocalDate start, LocalDate end);
+
+    default Optional<List<Invoice>> getBuyersYearNotPaidInvoicesNotCreatedToOrder(int year) {
+        DatePeriod period = DatePeriod.ofYear(year);
+        return getBuyersYearNotPaidInvoicesNotCreatedToOrder(period.getStart(), period.getEnd());
+    }
 
     /***
      *
@@ -167,24 +233,69 @@ public interface InvoiceDao extends JpaRepository<Invoice, Long> {
 
 
     @Query(value = "SELECT * FROM invoices i " +
-            "WHERE supplier_fk = ?1 AND MONTH(i.date) = ?2 AND YEAR(i.date) = ?3 AND value > 0",
+            "WHERE supplier_fk = ?1 AND i.date >= ?2 AND i.date < ?3 AND value > 0",
             nativeQuery = true)
-    List<Invoice> getSupplierMonthInvoices(Long supplierId, int month, int year);
+    List<Invoice> getSupplierMonthInvoices(Long supplierId, LocalDate start, LocalDate end);
+
+    default List<Invoice> getSupplierMonthInvoices(Long supplierId, int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getSupplierMonthInvoices(supplierId, period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT * FROM invoices i " +
-            "WHERE supplier_fk IS NOT NULL AND MONTH(i.date) = ?1 AND YEAR(i.date) = ?2 AND value > 0",
+            "WHERE supplier_fk IS NOT NULL AND i.date >= ?1 AND i.date < ?2 AND value > 0",
             nativeQuery = true)
-    List<Invoice> getSuppliersMonthInvoices(int month, int year);
+    List<Invoice> getSuppliersMonthInvoices(LocalDate start, LocalDate end);
+
+    default List<Invoice> getSuppliersMonthInvoices(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getSuppliersMonthInvoices(period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT * FROM invoices " +
             "INNER JOIN suppliers ON invoices.supplier_fk = suppliers.supplier_id " +
             "WHERE is_used = false AND amount_to_use > 0 " +
-            "AND MONTH(invoices.date) = ?1 AND YEAR(invoices.date) = ?2 " +
+            "AND invoices.date >= ?1 AND invoices.date < ?2 " +
             "AND is_paid = true",
             nativeQuery = true)
-    Optional<List<Invoice>> getSuppliersMonthNotUsedInvoices(int month, int year);
+    Optional<List<Invoice>> getSuppliersMonthNotUsedInvoices(LocalDate start, LocalDate end);
+
+    default Optional<List<Invoice>> getSuppliersMonthNotUsedInvoices(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getSuppliersMonthNotUsedInvoices(period.getStart(), period.getEnd());
+    }
+
+    /**
+     * Open paid invoices of buyers in the period, locked until the transfer commits.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT i FROM Invoice i " +
+            "WHERE i.buyer IS NOT NULL AND i.isUsed = false AND i.amountToUse > 0 AND i.isPaid = true " +
+            "AND i.date >= ?1 AND i.date < ?2 ORDER BY i.id")
+    List<Invoice> lockBuyersLeftoverInvoices(LocalDate start, LocalDate end);
+
+    /**
+     * Open paid invoices of suppliers in the period, locked until the transfer commits.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT i FROM Invoice i " +
+            "WHERE i.supplier IS NOT NULL AND i.isUsed = false AND i.amountToUse > 0 AND i.isPaid = true " +
+            "AND i.date >= ?1 AND i.date < ?2 ORDER BY i.id")
+    List<Invoice> lockSuppliersLeftoverInvoices(LocalDate start, LocalDate end);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE invoices SET is_used = true WHERE invoice_id IN ?1 AND is_used = false",
+            nativeQuery = true)
+    int useLeftoverInvoices(Collection<Long> ids);
+
+    @Query(value = "SELECT i FROM Invoice i LEFT JOIN FETCH i.buyer LEFT JOIN FETCH i.supplier " +
+            "WHERE i.id > ?1 ORDER BY i.id")
+    List<Invoice> getPageAfter(Long id, Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EntityStreamer.FETCH_SIZE))
+    @Query(value = "SELECT i FROM Invoice i LEFT JOIN FETCH i.buyer LEFT JOIN FETCH i.supplier ORDER BY i.id")
+    Stream<Invoice> streamAll();
 
 }
@@ -0,0 +1,147 @@
+package com.tradesystem.invoice;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Open (paid, not used) invoices and the negative invoice of every merchant touched
+ * in the current transaction. They are read from the database once and then kept
+ * up to date by the payment allocation, instead of being queried for every order detail.
+ * Open invoices are consumed oldest first, in invoice id order.
+ */
+@Component
+public class InvoiceLedger {
+
+    private InvoiceDao invoiceDao;
+
+
+    public InvoiceLedger(InvoiceDao invoiceDao) {
+        this.invoiceDao = invoiceDao;
+    }
+
+
+    public List<Invoice> getBuyerOpenInvoices(Long buyerId) {
+        Map<Long, TreeMap<Long, Invoice>> openInvoices = getState().buyerOpenInvoices;
+        TreeMap<Long, Invoice> invoices = openInvoices.get(buyerId);
+
+        if (invoices == null) {
+            invoices = toSortedMap(invoiceDao.getBuyerNotUsedInvoices(buyerId));
+            openInvoices.put(buyerId, invoices);
+        }
+        return new ArrayList<>(invoices.values());
+    }
+
+    public List<Invoice> getSupplierOpenInvoices(Long supplierId) {
+        Map<Long, TreeMap<Long, Invoice>> openInvoices = getState().supplierOpenInvoices;
+        TreeMap<Long, Invoice> invoices = openInvoices.get(supplierId);
+
+        if (invoices == null) {
+            invoices = toSortedMap(invoiceDao.getSupplierNotUsedInvoices(supplierId));
+            openInvoices.put(supplierId, invoices);
+        }
+        return new ArrayList<>(invoices.values());
+    }
+
+    public Optional<Invoice> getBuyerNegativeInvoice(Long buyerId) {
+        Map<Long, Optional<Invoice>> negativeInvoices = getState().buyerNegativeInvoices;
+
+        if (!negativeInvoices.containsKey(buyerId)) {
+            negativeInvoices.put(buyerId, invoiceDao.getBuyerNegativeInvoice(buyerId));
+        }
+        return negativeInvoices.get(buyerId);
+    }
+
+    public Optional<Invoice> getSupplierNegativeInvoice(Long supplierId) {
+        Map<Long, Optional<Invoice>> negativeInvoices = getState().supplierNegativeInvoices;
+
+        if (!negativeInvoices.containsKey(supplierId)) {
+            negativeInvoices.put(supplierId, invoiceDao.getSupplierNegativeInvoice(supplierId));
+        }
+        return negativeInvoices.get(supplierId);
+    }
+
+    public void setBuyerNegativeInvoice(Long buyerId, Invoice invoice) {
+        getState().buyerNegativeInvoices.put(buyerId, Optional.of(invoice));
+    }
+
+    public void setSupplierNegativeInvoice(Long supplierId, Invoice invoice) {
+        getState().supplierNegativeInvoices.put(supplierId, Optional.of(invoice));
+    }
+
+    /**
+     * Drops an invoice that got used from the open invoices of its merchant.
+     */
+    public void update(Invoice invoice) {
+        if (!invoice.isUsed()) {
+            return;
+        }
+        LedgerState state = getState();
+
+        if (invoice.getBuyer() != null) {
+            removeOpenInvoice(state.buyerOpenInvoices, invoice.getBuyer().getId(), invoice);
+        }
+        if (invoice.getSupplier() != null) {
+            removeOpenInvoice(state.supplierOpenInvoices, invoice.getSupplier().getId(), invoice);
+        }
+    }
+
+    /**
+     * Forgets everything read so far, for callers that change invoices outside of the allocation.
+     */
+    public void clear() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.unbindResource(this);
+        }
+    }
+
+    private void removeOpenInvoice(Map<Long, TreeMap<Long, Invoice>> openInvoices, Long merchantId, Invoice invoice) {
+        TreeMap<Long, Invoice> invoices = openInvoices.get(merchantId);
+        if (invoices != null) {
+            invoices.remove(invoice.getId());
+        }
+    }
+
+    private TreeMap<Long, Invoice> toSortedMap(List<Invoice> invoices) {
+        TreeMap<Long, Invoice> sortedInvoices = new TreeMap<>();
+        for (Invoice invoice : invoices) {
+            sortedInvoices.put(invoice.getId(), invoice);
+        }
+        return sortedInvoices;
+    }
+
+    private LedgerState getState() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new LedgerState();
+        }
+
+        LedgerState state = (LedgerState) TransactionSynchronizationManager.getResource(this);
+        if (state == null) {
+            state = new LedgerState();
+            TransactionSynchronizationManager.bindResource(this, state);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    clear();
+                }
+            });
+        }
+        return state;
+    }
+
+    private static class LedgerState {
+
+        private final Map<Long, TreeMap<Long, Invoice>> buyerOpenInvoices = new HashMap<>();
+        private final Map<Long, TreeMap<Long, Invoice>> supplierOpenInvoices = new HashMap<>();
+        private final Map<Long, Optional<Invoice>> buyerNegativeInvoices = new HashMap<>();
+        private final Map<Long, Optional<Invoice>> supplierNegativeInvoices = new HashMap<>();
+    }
+
+}
@@ -3,21 +3,37 @@ package com.tradesystem.invoice;
 import com.tradesystem.buyer.Buyer;
 import com.tradesystem.buyer.BuyerDao;
 import com.tradesystem.buyer.BuyerDto;
+import com.tradesystem.invoice.MerchantLockService.MerchantLocks;
+import com.tradesystem.pagination.EntityStreamer;
+import com.tradesystem.pagination.KeysetCursor;
+import com.tradesystem.pagination.KeysetPage;
 import com.tradesystem.payment.Payment;
 import com.tradesystem.payment.PaymentDao;
+import com.tradesystem.period.DatePeriod;
+import com.tradesystem.report.ReportLedgerService;
 import com.tradesystem.supplier.Supplier;
 import com.tradesystem.supplier.SupplierDao;
 import com.tradesystem.supplier.SupplierDto;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.List;
+import java.util.function.Consumer;
 
 
+@Log4j2
 @Service
 public class InvoiceService {
 
@@ -25,13 +41,28 @@ public class InvoiceService {
     private BuyerDao buyerDao;
     private SupplierDao supplierDao;
     private PaymentDao paymentDao;
+    private ReportLedgerService reportLedgerService;
+    private EntityStreamer entityStreamer;
+    private InvoiceTransferDao invoiceTransferDao;
+    private MerchantLockService merchantLockService;
+    private TransactionTemplate transactionTemplate;
 
+    private Logger logger = LogManager.getLogger(InvoiceService.class);
 
-    public InvoiceService(InvoiceDao invoiceDao, BuyerDao buyerDao, SupplierDao supplierDao, PaymentDao paymentDao) {
+
+    public InvoiceService(InvoiceDao invoiceDao, BuyerDao buyerDao, SupplierDao supplierDao, PaymentDao paymentDao,
+                          ReportLedgerService reportLedgerService, EntityStreamer entityStreamer,
+                          InvoiceTransferDao invoiceTransferDao, MerchantLockService merchantLockService,
+                          PlatformTransactionManager transactionManager) {
         this.invoiceDao = invoiceDao;
         this.buyerDao = buyerDao;
         this.supplierDao = supplierDao;
         this.paymentDao = paymentDao;
+        this.reportLedgerService = reportLedgerService;
+        this.entityStreamer = entityStreamer;
+        this.invoiceTransferDao = invoiceTransferDao;
+        this.merchantLockService = merchantLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
 
@@ -40,8 +71,33 @@ public class InvoiceService {
         return invoiceDao.findAll();
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    public KeysetPage<Invoice> getPage(String cursor, Integer size) {
+        int pageSize = KeysetCursor.size(size);
+        List<Invoice> rows = invoiceDao.getPageAfter(KeysetCursor.decode(cursor), KeysetCursor.limit(pageSize));
+
+        return KeysetPage.of(rows, pageSize, Invoice::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public int streamAll(Consumer<Invoice> action) {
+        return entityStreamer.forEach(invoiceDao.streamAll(), action);
+    }
+
+    /**
+     * Invoice writes spend the merchant's negative invoice, so they hold its lock
+     * for the whole transaction, see MerchantLockService.
+     */
     public Invoice createInvoice(InvoiceDto invoiceDto) {
+        Long buyerId = invoiceDto.getBuyer() != null ? invoiceDto.getBuyer().getId() : null;
+        Long supplierId = invoiceDto.getSupplier() != null ? invoiceDto.getSupplier().getId() : null;
+
+        try (MerchantLocks locks = merchantLockService.lock(buyerId, supplierId)) {
+            return transactionTemplate.execute(status -> create(invoiceDto));
+        }
+    }
+
+    private Invoice create(InvoiceDto invoiceDto) {
         Buyer buyer = null;
         final BuyerDto buyerDto = invoiceDto.getBuyer();
         if (buyerDto != null) {
@@ -78,7 +134,11 @@ public class InvoiceService {
                 processNegativeInvoicesForSupplier(invoice);
             }
 
-            return invoiceDao.save(invoice);
+            Invoice savedInvoice = invoiceDao.save(invoice);
+            if (savedInvoice.getBuyer() != null) {
+                reportLedgerService.refreshNotPaidInvoices(savedInvoice.getDate());
+            }
+            return savedInvoice;
         } else {
             throw new RuntimeException("Can't create invoice");
         }
@@ -102,8 +162,20 @@ public class InvoiceService {
         return invoiceDao.getByInvoiceNumber(invoiceNumber);
     }
 
-    @Transactional
     public void payForInvoice(Long id) {
+        Invoice invoice = getInvoice(id);
+        Long buyerId = invoice.getBuyer() != null ? invoice.getBuyer().getId() : null;
+        Long supplierId = invoice.getSupplier() != null ? invoice.getSupplier().getId() : null;
+
+        try (MerchantLocks locks = merchantLockService.lock(buyerId, supplierId)) {
+            transactionTemplate.execute(status -> {
+                pay(id);
+                return null;
+            });
+        }
+    }
+
+    private void pay(Long id) {
         Optional<Invoice> optionalInvoice = invoiceDao.findById(id);
         Invoice invoice = optionalInvoice
                 .orElseThrow(NoSuchElementException::new);
@@ -119,16 +191,69 @@ public class InvoiceService {
                 invoice.setUsed(true);
             }
             processNegativeInvoicesForBuyer(invoice);
+            reportLedgerService.refreshNotPaidInvoices(invoice.getDate());
         } else {
             invoice.setPaid(true);
             processNegativeInvoicesForSupplier(invoice);
         }
     }
 
-    @Transactional
-    public void transferInvoicesToNextMonth(LocalDate localDate) {
-        transferBuyerInvoices(localDate);
-        transferSupplierInvoices(localDate);
+    /**
+     * Moves the open paid invoices of the month before localDate to its month: the originals
+     * are loaded and locked, the copies inserted in batches and exactly the loaded originals
+     * closed with one update. A month is transferred once, a repeated request only returns
+     * what the first one did. The leftovers of every merchant are closed, so it holds
+     * all merchant locks.
+     */
+    public InvoiceTransferResult transferInvoicesToNextMonth(LocalDate localDate) {
+        try (MerchantLocks locks = merchantLockService.lockAll()) {
+            return transactionTemplate.execute(status -> transfer(localDate));
+        }
+    }
+
+    private InvoiceTransferResult transfer(LocalDate localDate) {
+        long start = System.currentTimeMillis();
+        YearMonth targetMonth = YearMonth.from(localDate);
+
+        Optional<InvoiceTransfer> previousTransfer = invoiceTransferDao.findByYearAndMonth(targetMonth.getYear(),
+                targetMonth.getMonthValue());
+        if (previousTransfer.isPresent()) {
+            logger.info("Faktury zostały już przeniesione na " + targetMonth);
+            return toTransferResult(previousTransfer.get(), true, System.currentTimeMillis() - start);
+        }
+
+        // taken first, so a concurrent transfer of the same month fails on the unique key before doing anything
+        InvoiceTransfer invoiceTransfer = invoiceTransferDao.saveAndFlush(InvoiceTransfer.builder()
+                .year(targetMonth.getYear())
+                .month(targetMonth.getMonthValue())
+                .transferredAt(LocalDateTime.now())
+                .build());
+
+        DatePeriod previousMonth = DatePeriod.ofMonth(targetMonth.minusMonths(1));
+        // locked, so no invoice can be spent or paid between being copied and being closed
+        List<Invoice> buyersInvoices = invoiceDao.lockBuyersLeftoverInvoices(previousMonth.getStart(),
+                previousMonth.getEnd());
+        List<Invoice> suppliersInvoices = invoiceDao.lockSuppliersLeftoverInvoices(previousMonth.getStart(),
+                previousMonth.getEnd());
+
+        // new ids come from the pooled generator, so these inserts are sent in JDBC batches
+        invoiceDao.saveAll(toTransferredInvoices(buyersInvoices));
+        invoiceDao.saveAll(toTransferredInvoices(suppliersInvoices));
+        useLeftoverInvoices(buyersInvoices);
+        useLeftoverInvoices(suppliersInvoices);
+
+        int buyerInvoices = buyersInvoices.size();
+        int supplierInvoices = suppliersInvoices.size();
+
+        invoiceTransfer.setBuyerInvoices(buyerInvoices);
+        invoiceTransfer.setSupplierInvoices(supplierInvoices);
+        invoiceTransferDao.save(invoiceTransfer);
+
+        long duration = System.currentTimeMillis() - start;
+        logger.info("Przeniesiono faktury na " + targetMonth + ": kupców " + buyerInvoices
+                + ", dostawców " + supplierInvoices + " w " + duration + " ms");
+
+        return toTransferResult(invoiceTransfer, false, duration);
     }
 
     @Transactional
@@ -146,15 +271,9 @@ public class InvoiceService {
 
     @Transactional
     public BigDecimal getBuyersNegativeBalance() {
-        BigDecimal result = BigDecimal.valueOf(0);
+        BigDecimal result = buyerDao.sumNegativeBalances();
 
-        List<Buyer> buyers = buyerDao.findAll();
-        for (Buyer buyer : buyers) {
-            if (buyer.getCurrentBalance().compareTo(BigDecimal.ZERO) < 0) {
-                result = result.add(buyer.getCurrentBalance());
-            }
-        }
-        return result;
+        return result != null ? result : BigDecimal.valueOf(0);
     }
 
     @Transactional
@@ -246,11 +365,10 @@ public class InvoiceService {
     }
 
     private void processNegativeInvoice(Invoice invoice, Invoice negativeInvoice) {
-        BigDecimal converter = BigDecimal.valueOf(-1);
         BigDecimal zero = BigDecimal.ZERO;
 
         BigDecimal negativeAmount = negativeInvoice.getAmountToUse();
-        BigDecimal convertedNegativeAmount = negativeAmount.multiply(converter);
+        BigDecimal convertedNegativeAmount = negativeAmount.negate();
         BigDecimal invoiceAmount = invoice.getAmountToUse();
         BigDecimal newAmount;
 
@@ -270,7 +388,7 @@ public class InvoiceService {
 
         if (invoiceAmount.compareTo(convertedNegativeAmount) == -1) {
             BigDecimal newNegativeInvoiceAmount = convertedNegativeAmount.subtract(invoiceAmount);
-            BigDecimal newConvertedAmount = newNegativeInvoiceAmount.multiply(converter);
+            BigDecimal newConvertedAmount = newNegativeInvoiceAmount.negate();
             saveInvoice(negativeInvoice, newConvertedAmount, false);
 
             invoice.setComment("Pomniejszono o -" + invoiceAmount + " z faktury o id " + negativeInvoice.getId());
@@ -284,61 +402,53 @@ public class InvoiceService {
         invoiceDao.save(invoice);
     }
 
-    private void transferSupplierInvoices(LocalDate localDate) {
-        int month = localDate.getMonthValue();
-        int year = localDate.getYear();
-        Optional<List<Invoice>> optionalInvoices = invoiceDao.getSuppliersMonthNotUsedInvoices(month - 1, year);
-        if (optionalInvoices.isPresent()) {
-            for (Invoice oldInvoice : optionalInvoices.get()) {
-                BigDecimal amountToUse = oldInvoice.getAmountToUse();
-                String invoiceNumber = oldInvoice.getInvoiceNumber();
-                Supplier supplier = oldInvoice.getSupplier();
-                LocalDate date = oldInvoice.getDate();
-                oldInvoice.setUsed(true);
-                invoiceDao.save(oldInvoice);
-
-                Invoice newInvoice = createInvoice(amountToUse, invoiceNumber, date);
-                newInvoice.setSupplier(supplier);
-
-                invoiceDao.save(newInvoice);
-            }
+    private void useLeftoverInvoices(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            ids.add(invoice.getId());
+        }
+
+        int used = invoiceDao.useLeftoverInvoices(ids);
+        if (used != ids.size()) {
+            throw new RuntimeException("Przeniesiono " + ids.size() + " faktur, a zamknięto " + used
+                    + ", przeniesienie zostało wycofane");
         }
     }
 
-    private void transferBuyerInvoices(LocalDate localDate) {
-        int month = localDate.getMonthValue();
-        int year = localDate.getYear();
-        Optional<List<Invoice>> optionalInvoices = invoiceDao.getBuyersMonthNotUsedPositivesInvoices(month - 1, year);
+    private List<Invoice> toTransferredInvoices(List<Invoice> oldInvoices) {
+        List<Invoice> invoices = new ArrayList<>();
 
-        if (optionalInvoices.isPresent()) {
-            for (Invoice oldInvoice : optionalInvoices.get()) {
-                BigDecimal amountToUse = oldInvoice.getAmountToUse();
-                String invoiceNumber = oldInvoice.getInvoiceNumber();
-                Buyer buyer = oldInvoice.getBuyer();
-                LocalDate date = oldInvoice.getDate();
-                oldInvoice.setUsed(true);
-                invoiceDao.save(oldInvoice);
-
-                Invoice newInvoice = createInvoice(amountToUse, invoiceNumber, date);
-                newInvoice.setValue(amountToUse);
-                newInvoice.setBuyer(buyer);
-
-                invoiceDao.save(newInvoice);
-            }
+        for (Invoice oldInvoice : oldInvoices) {
+            Invoice invoice = new Invoice();
+            invoice.setAmountToUse(oldInvoice.getAmountToUse());
+            invoice.setInvoiceNumber(oldInvoice.getInvoiceNumber() + "-przeniesiona");
+            invoice.setValue(oldInvoice.getAmountToUse());
+            invoice.setPaid(true);
+            invoice.setUsed(false);
+            invoice.setComment("Przeniesiono z poprzedniego miesiąca,  FV o nr: " + oldInvoice.getInvoiceNumber());
+            invoice.setDate(oldInvoice.getDate().plusMonths(1));
+            invoice.setBuyer(oldInvoice.getBuyer());
+            invoice.setSupplier(oldInvoice.getSupplier());
+
+            invoices.add(invoice);
         }
+        return invoices;
     }
 
-    private Invoice createInvoice(BigDecimal amountToUse, String invoiceNumber, LocalDate date) {
-        Invoice invoice = new Invoice();
-        invoice.setAmountToUse(amountToUse);
-        invoice.setInvoiceNumber(invoiceNumber + "-przeniesiona");
-        invoice.setValue(amountToUse);
-        invoice.setPaid(true);
-        invoice.setUsed(false);
-        invoice.setComment("Przeniesiono z poprzedniego miesiąca,  FV o nr: " + invoiceNumber);
-        invoice.setDate(date.plusMonths(1));
-
-        return invoice;
+    private InvoiceTransferResult toTransferResult(InvoiceTransfer invoiceTransfer, boolean alreadyTransferred,
+                                                   long durationMs) {
+        return InvoiceTransferResult.builder()
+                .year(invoiceTransfer.getYear())
+                .month(invoiceTransfer.getMonth())
+                .alreadyTransferred(alreadyTransferred)
+                .buyerInvoices(invoiceTransfer.getBuyerInvoices())
+                .supplierInvoices(invoiceTransfer.getSupplierInvoices())
+                .transferredAt(invoiceTransfer.getTransferredAt())
+                .durationMs(durationMs)
+                .build();
     }
 
     private boolean validateInvoice(InvoiceDto invoiceDto, Buyer buyer, Supplier supplier) {
@@ -0,0 +1,43 @@
+package com.tradesystem.invoice;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Marks a month the leftover invoices of the previous month were already transferred to,
+ * so the transfer is done once per month however many times it is requested.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "invoice_transfers",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"period_year", "period_month"}))
+public class InvoiceTransfer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "invoice_transfer_id")
+    private Long id;
+
+    @Column(name = "period_year", nullable = false)
+    private int year;
+
+    @Column(name = "period_month", nullable = false)
+    private int month;
+
+    private int buyerInvoices;
+
+    private int supplierInvoices;
+
+    private LocalDateTime transferredAt;
+
+}
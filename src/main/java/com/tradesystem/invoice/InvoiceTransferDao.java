@@ -0,0 +1,13 @@
+package com.tradesystem.invoice;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface InvoiceTransferDao extends JpaRepository<InvoiceTransfer, Long> {
+
+    Optional<InvoiceTransfer> findByYearAndMonth(int year, int month);
+
+}
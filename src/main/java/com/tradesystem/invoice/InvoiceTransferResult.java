@@ -0,0 +1,24 @@
+package com.tradesystem.invoice;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceTransferResult {
+
+    private int year;
+    private int month;
+    private boolean alreadyTransferred;
+    private int buyerInvoices;
+    private int supplierInvoices;
+    private LocalDateTime transferredAt;
+    private long durationMs;
+
+}
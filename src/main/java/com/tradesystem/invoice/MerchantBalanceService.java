@@ -0,0 +1,212 @@
+package com.tradesystem.invoice;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerBalance;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierBalance;
+import com.tradesystem.supplier.SupplierDao;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps buyers.current_balance and suppliers.current_balance in step with invoices.
+ * InvoiceBalanceListener reports every invoice written in a transaction; once the
+ * transaction commits the balances of those merchants are recalculated from their
+ * invoices and stored, so balance reads only read the columns.
+ *
+ * Not every invoice write holds a MerchantLockService lock, so the recalculation runs
+ * in its own transaction that first locks the merchant rows (SELECT ... FOR UPDATE),
+ * in id order, and only then reads the invoices. Its snapshot is taken after the lock,
+ * so it sees every write committed before, and a write committed later recalculates
+ * again after it. The locks never cover invoice rows, so they cannot deadlock with the
+ * transactions writing invoices.
+ */
+@Log4j2
+@Service
+public class MerchantBalanceService {
+
+    private BuyerDao buyerDao;
+    private SupplierDao supplierDao;
+    private InvoiceDao invoiceDao;
+    private TransactionTemplate recalculateTransactionTemplate;
+
+    private Logger logger = LogManager.getLogger(MerchantBalanceService.class);
+
+
+    public MerchantBalanceService(BuyerDao buyerDao, SupplierDao supplierDao, InvoiceDao invoiceDao,
+                                  PlatformTransactionManager transactionManager) {
+        this.buyerDao = buyerDao;
+        this.supplierDao = supplierDao;
+        this.invoiceDao = invoiceDao;
+        this.recalculateTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.recalculateTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+
+    /**
+     * Called when an invoice is loaded or persisted, so the balances are recalculated
+     * before commit if the transaction ends up changing it.
+     */
+    public void watch() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            getState();
+        }
+    }
+
+    public void touch(Invoice invoice) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        State state = getState();
+
+        if (invoice.getBuyer() != null) {
+            state.buyerIds.add(invoice.getBuyer().getId());
+        }
+        if (invoice.getSupplier() != null) {
+            state.supplierIds.add(invoice.getSupplier().getId());
+        }
+    }
+
+    /**
+     * Recalculates every balance, logs the ones that drifted from their invoices and stores
+     * the right value under the merchant row locks. Returns the number of repaired balances.
+     */
+    @Transactional(readOnly = true)
+    public int reconcile() {
+        Set<Long> driftedBuyerIds = new TreeSet<>();
+        Set<Long> driftedSupplierIds = new TreeSet<>();
+
+        Map<Long, BigDecimal> buyerBalances = new HashMap<>();
+        for (BuyerBalance buyerBalance : buyerDao.getBalances()) {
+            buyerBalances.put(buyerBalance.getBuyerId(), buyerBalance.getBalance());
+        }
+        for (Buyer buyer : buyerDao.findAll()) {
+            BigDecimal balance = buyerBalances.getOrDefault(buyer.getId(), BigDecimal.ZERO);
+
+            if (differs(buyer.getCurrentBalance(), balance)) {
+                logger.warn("Rozbieżne saldo kupca " + buyer.getName() + ": zapisane " + buyer.getCurrentBalance()
+                        + ", z faktur " + balance);
+                driftedBuyerIds.add(buyer.getId());
+            }
+        }
+
+        Map<Long, BigDecimal> supplierBalances = new HashMap<>();
+        for (SupplierBalance supplierBalance : supplierDao.getBalances()) {
+            supplierBalances.put(supplierBalance.getSupplierId(), supplierBalance.getBalance());
+        }
+        for (Supplier supplier : supplierDao.findAll()) {
+            BigDecimal balance = supplierBalances.getOrDefault(supplier.getId(), BigDecimal.ZERO);
+
+            if (differs(supplier.getCurrentBalance(), balance)) {
+                logger.warn("Rozbieżne saldo dostawcy " + supplier.getName() + ": zapisane " + supplier.getCurrentBalance()
+                        + ", z faktur " + balance);
+                driftedSupplierIds.add(supplier.getId());
+            }
+        }
+
+        // this snapshot may already be old, so the drifted balances are recalculated under the row locks
+        recalculate(driftedBuyerIds, driftedSupplierIds);
+
+        int repaired = driftedBuyerIds.size() + driftedSupplierIds.size();
+        logger.info("Uzgodniono salda kupców i dostawców, poprawiono: " + repaired);
+
+        return repaired;
+    }
+
+    /**
+     * Locks the merchant rows and stores their balances recalculated from committed invoices,
+     * in a new transaction.
+     */
+    public void recalculate(Collection<Long> buyerIds, Collection<Long> supplierIds) {
+        if (buyerIds.isEmpty() && supplierIds.isEmpty()) {
+            return;
+        }
+        Set<Long> sortedBuyerIds = new TreeSet<>(buyerIds);
+        Set<Long> sortedSupplierIds = new TreeSet<>(supplierIds);
+
+        recalculateTransactionTemplate.execute(status -> {
+            if (!sortedBuyerIds.isEmpty()) {
+                buyerDao.lockByIds(sortedBuyerIds);
+            }
+            if (!sortedSupplierIds.isEmpty()) {
+                supplierDao.lockByIds(sortedSupplierIds);
+            }
+
+            if (!sortedBuyerIds.isEmpty()) {
+                for (BuyerBalance buyerBalance : buyerDao.getBalances(sortedBuyerIds)) {
+                    buyerDao.setCurrentBalance(buyerBalance.getBuyerId(), buyerBalance.getBalance());
+                }
+            }
+            if (!sortedSupplierIds.isEmpty()) {
+                for (SupplierBalance supplierBalance : supplierDao.getBalances(sortedSupplierIds)) {
+                    supplierDao.setCurrentBalance(supplierBalance.getSupplierId(), supplierBalance.getBalance());
+                }
+            }
+            return null;
+        });
+    }
+
+    private boolean differs(BigDecimal stored, BigDecimal balance) {
+        return stored == null || stored.compareTo(balance) != 0;
+    }
+
+    private State getState() {
+        State state = (State) TransactionSynchronizationManager.getResource(this);
+
+        if (state == null) {
+            State newState = new State();
+            TransactionSynchronizationManager.bindResource(this, newState);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (!readOnly) {
+                        // writes the pending invoice changes, which also reports them through the listener
+                        invoiceDao.flush();
+                    }
+                }
+
+                @Override
+                public void afterCommit() {
+                    // the invoices are committed already, a failure here is repaired by the next reconcile
+                    try {
+                        recalculate(newState.buyerIds, newState.supplierIds);
+                    } catch (RuntimeException e) {
+                        logger.error("Nie przeliczono sald kupców " + newState.buyerIds + " i dostawców "
+                                + newState.supplierIds, e);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MerchantBalanceService.this);
+                }
+            });
+            state = newState;
+        }
+        return state;
+    }
+
+    private static class State {
+
+        private final Set<Long> buyerIds = new TreeSet<>();
+        private final Set<Long> supplierIds = new TreeSet<>();
+    }
+
+}
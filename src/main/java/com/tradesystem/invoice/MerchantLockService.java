@@ -0,0 +1,89 @@
+package com.tradesystem.invoice;
+
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes the writes that spend invoices of the same buyer or supplier, while
+ * writes for other merchants run in parallel. Merchants are mapped onto a fixed
+ * set of lock stripes, which are always taken in ascending order so two requests
+ * can never wait for each other.
+ *
+ * Locks have to be taken before the transaction starts and released after it ends,
+ * otherwise the next request could still read invoices from before the commit.
+ */
+@Service
+public class MerchantLockService {
+
+    private static final int STRIPES = 256;
+    private static final int BUYER = 1;
+    private static final int SUPPLIER = 2;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+
+    public MerchantLockService() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+
+    public MerchantLocks lock(Long buyerId, Long supplierId) {
+        return lock(buyerId != null ? Collections.singleton(buyerId) : Collections.<Long>emptySet(),
+                supplierId != null ? Collections.singleton(supplierId) : Collections.<Long>emptySet());
+    }
+
+    public MerchantLocks lock(Collection<Long> buyerIds, Collection<Long> supplierIds) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Long buyerId : buyerIds) {
+            stripes.add(stripe(BUYER, buyerId));
+        }
+        for (Long supplierId : supplierIds) {
+            stripes.add(stripe(SUPPLIER, supplierId));
+        }
+
+        MerchantLocks merchantLocks = new MerchantLocks();
+        for (Integer stripe : stripes) {
+            locks[stripe].lock();
+            merchantLocks.acquired.push(locks[stripe]);
+        }
+        return merchantLocks;
+    }
+
+    /**
+     * Takes every stripe, for writes that spend invoices of all merchants at once.
+     */
+    public MerchantLocks lockAll() {
+        MerchantLocks merchantLocks = new MerchantLocks();
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+            merchantLocks.acquired.push(lock);
+        }
+        return merchantLocks;
+    }
+
+    private int stripe(int merchantType, Long merchantId) {
+        int hash = 31 * merchantType + merchantId.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % STRIPES;
+    }
+
+    public static class MerchantLocks implements AutoCloseable {
+
+        private final ArrayDeque<ReentrantLock> acquired = new ArrayDeque<>();
+
+        @Override
+        public void close() {
+            while (!acquired.isEmpty()) {
+                acquired.pop().unlock();
+            }
+        }
+    }
+
+}
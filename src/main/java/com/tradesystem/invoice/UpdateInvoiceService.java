@@ -1,25 +1,55 @@
 package com.tradesystem.invoice;
 
+import com.tradesystem.invoice.MerchantLockService.MerchantLocks;
+import com.tradesystem.report.ReportLedgerService;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
 
 @Service
 public class UpdateInvoiceService {
 
     private InvoiceDao invoiceDao;
+    private ReportLedgerService reportLedgerService;
+    private MerchantLockService merchantLockService;
+    private TransactionTemplate transactionTemplate;
 
-    public UpdateInvoiceService(InvoiceDao invoiceDao) {
+    public UpdateInvoiceService(InvoiceDao invoiceDao, ReportLedgerService reportLedgerService,
+                                MerchantLockService merchantLockService, PlatformTransactionManager transactionManager) {
         this.invoiceDao = invoiceDao;
+        this.reportLedgerService = reportLedgerService;
+        this.merchantLockService = merchantLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
 
-    @Transactional
     public Invoice updateInvoice(UpdateInvoiceRequest updateInvoiceRequest) {
         Invoice invoice = invoiceDao.getByInvoiceNumber(updateInvoiceRequest.getOldInvoiceNumber());
+        if (invoice == null) {
+            throw new RuntimeException("Nie znaleziono faktury o nr " + updateInvoiceRequest.getOldInvoiceNumber());
+        }
+        Long buyerId = invoice.getBuyer() != null ? invoice.getBuyer().getId() : null;
+        Long supplierId = invoice.getSupplier() != null ? invoice.getSupplier().getId() : null;
+
+        try (MerchantLocks locks = merchantLockService.lock(buyerId, supplierId)) {
+            return transactionTemplate.execute(status -> update(updateInvoiceRequest));
+        }
+    }
+
+    private Invoice update(UpdateInvoiceRequest updateInvoiceRequest) {
+        Invoice invoice = invoiceDao.getByInvoiceNumber(updateInvoiceRequest.getOldInvoiceNumber());
+        LocalDate oldDate = invoice.getDate();
 
         invoice.setDate(updateInvoiceRequest.getNewDate());
         invoice.setInvoiceNumber(updateInvoiceRequest.getNewInvoiceNumber());
 
-        return invoiceDao.save(invoice);
+        Invoice savedInvoice = invoiceDao.save(invoice);
+        if (savedInvoice.getBuyer() != null) {
+            reportLedgerService.refreshNotPaidInvoices(oldDate);
+            reportLedgerService.refreshNotPaidInvoices(savedInvoice.getDate());
+        }
+        return savedInvoice;
     }
 }
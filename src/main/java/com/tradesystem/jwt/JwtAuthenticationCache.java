@@ -0,0 +1,89 @@
+package com.tradesystem.jwt;
+
+import com.tradesystem.userdetails.MyUserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validated tokens with the user they belong to, so a request with a known token is
+ * authenticated without verifying the signature or reading the user again. Tokens are
+ * kept as SHA-256 hashes, never longer than ttlSeconds nor past their own expiry.
+ */
+@Component
+public class JwtAuthenticationCache {
+
+    private final Map<String, CachedAuthentication> authentications = new ConcurrentHashMap<>();
+
+    @Value("${jwt.cache.ttlSeconds:300}")
+    private long ttlSeconds;
+    @Value("${jwt.cache.maxSize:10000}")
+    private int maxSize;
+
+
+    public MyUserDetails get(String token) {
+        String key = hash(token);
+        CachedAuthentication authentication = authentications.get(key);
+
+        if (authentication == null) {
+            return null;
+        }
+        if (authentication.expiresAt <= System.currentTimeMillis()) {
+            authentications.remove(key, authentication);
+            return null;
+        }
+        return authentication.userDetails;
+    }
+
+    public void put(String token, Date tokenExpiration, MyUserDetails userDetails) {
+        long now = System.currentTimeMillis();
+        long expiresAt = Math.min(tokenExpiration.getTime(), now + ttlSeconds * 1000);
+        if (expiresAt <= now) {
+            return;
+        }
+        if (authentications.size() >= maxSize) {
+            makeRoom(now);
+        }
+        authentications.put(hash(token), new CachedAuthentication(userDetails, expiresAt));
+    }
+
+    private void makeRoom(long now) {
+        authentications.values().removeIf(authentication -> authentication.expiresAt <= now);
+
+        // still full of live tokens, so drop any of them, it is only read again from the token
+        Iterator<CachedAuthentication> iterator = authentications.values().iterator();
+        while (authentications.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class CachedAuthentication {
+
+        private final MyUserDetails userDetails;
+        private final long expiresAt;
+
+        private CachedAuthentication(MyUserDetails userDetails, long expiresAt) {
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -1,9 +1,10 @@
 package com.tradesystem.jwt;
 
+import com.tradesystem.userdetails.MyUserDetails;
 import com.tradesystem.userdetails.MyUserDetailsService;
+import io.jsonwebtoken.Claims;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,11 +20,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
     private JwtUtil jwtUtil;
     private MyUserDetailsService myUserDetailsService;
+    private JwtAuthenticationCache jwtAuthenticationCache;
 
 
-    public JwtRequestFilter(JwtUtil jwtUtil, MyUserDetailsService myUserDetailsService) {
+    public JwtRequestFilter(JwtUtil jwtUtil, MyUserDetailsService myUserDetailsService,
+                            JwtAuthenticationCache jwtAuthenticationCache) {
         this.jwtUtil = jwtUtil;
         this.myUserDetailsService = myUserDetailsService;
+        this.jwtAuthenticationCache = jwtAuthenticationCache;
     }
 
 
@@ -32,18 +36,15 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                                     HttpServletResponse httpServletResponse, FilterChain filterChain) throws ServletException, IOException {
         final String authorizationHeader = httpServletRequest.getHeader("Authorization");
 
-        String userName = null;
-        String jwt = null;
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(7);
+            MyUserDetails userDetails = jwtAuthenticationCache.get(jwt);
 
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer")) {
-            jwt = authorizationHeader.substring(7);
-            userName = jwtUtil.extractUsername(jwt);
-        }
-
-        if (userName != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.myUserDetailsService.loadUserByUsername(userName);
-
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (userDetails == null) {
+                userDetails = authenticate(jwt);
+            }
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(httpServletRequest));
@@ -54,4 +55,18 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         filterChain.doFilter(httpServletRequest, httpServletResponse);
     }
 
+    private MyUserDetails authenticate(String jwt) {
+        Claims claims = jwtUtil.extractAllClaims(jwt);
+        if (claims.getSubject() == null) {
+            return null;
+        }
+        MyUserDetails userDetails = (MyUserDetails) this.myUserDetailsService.loadUserByUsername(claims.getSubject());
+
+        if (!jwtUtil.validateToken(claims, userDetails)) {
+            return null;
+        }
+        jwtAuthenticationCache.put(jwt, claims.getExpiration(), userDetails);
+        return userDetails;
+    }
+
 }
@@ -0,0 +1,27 @@
+package com.tradesystem.metrics;
+
+import lombok.Getter;
+
+@Getter
+public class EndpointMetrics {
+
+    private final String endpoint;
+    private final Histogram wallMillis = new Histogram();
+    private final Histogram jdbcMillis = new Histogram();
+    private final Histogram statements = new Histogram();
+    private final Histogram entityLoads = new Histogram();
+
+
+    public EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+
+    public void record(RequestMetrics requestMetrics, long wallMillis) {
+        this.wallMillis.record(wallMillis);
+        jdbcMillis.record(requestMetrics.getJdbcMillis());
+        statements.record(requestMetrics.getStatements());
+        entityLoads.record(requestMetrics.getEntityLoads());
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.tradesystem.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EndpointMetricsDto {
+
+    private String endpoint;
+    private long requests;
+    private HistogramDto wallMillis;
+    private HistogramDto jdbcMillis;
+    private HistogramDto statements;
+    private HistogramDto entityLoads;
+
+}
@@ -0,0 +1,75 @@
+package com.tradesystem.metrics;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Histograms of every controller method since startup. A request that runs more
+ * statements than metrics.statementThreshold is also logged on its own.
+ */
+@Log4j2
+@Component
+public class EndpointMetricsRegistry {
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    @Value("${metrics.statementThreshold:50}")
+    private int statementThreshold;
+
+    private Logger logger = LogManager.getLogger(EndpointMetricsRegistry.class);
+
+
+    public void record(String endpoint, RequestMetrics requestMetrics) {
+        long wallMillis = requestMetrics.getWallMillis();
+        endpoints.computeIfAbsent(endpoint, EndpointMetrics::new).record(requestMetrics, wallMillis);
+
+        if (requestMetrics.getStatements() > statementThreshold) {
+            logger.warn(endpoint + ": zapytań SQL " + requestMetrics.getStatements()
+                    + ", czas JDBC " + requestMetrics.getJdbcMillis() + " ms"
+                    + ", wczytanych encji " + requestMetrics.getEntityLoads()
+                    + ", czas " + wallMillis + " ms");
+        }
+    }
+
+    public List<EndpointMetricsDto> getAll() {
+        return endpoints.values().stream()
+                .sorted(Comparator.comparing(EndpointMetrics::getEndpoint))
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    private EndpointMetricsDto toDto(EndpointMetrics endpointMetrics) {
+        return EndpointMetricsDto.builder()
+                .endpoint(endpointMetrics.getEndpoint())
+                .requests(endpointMetrics.getWallMillis().getCount())
+                .wallMillis(toDto(endpointMetrics.getWallMillis()))
+                .jdbcMillis(toDto(endpointMetrics.getJdbcMillis()))
+                .statements(toDto(endpointMetrics.getStatements()))
+                .entityLoads(toDto(endpointMetrics.getEntityLoads()))
+                .build();
+    }
+
+    private HistogramDto toDto(Histogram histogram) {
+        return HistogramDto.builder()
+                .mean(histogram.getMean())
+                .p50(histogram.getPercentile(50))
+                .p95(histogram.getPercentile(95))
+                .p99(histogram.getPercentile(99))
+                .max(histogram.getMax())
+                .build();
+    }
+
+}
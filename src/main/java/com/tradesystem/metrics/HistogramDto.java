@@ -0,0 +1,20 @@
+package com.tradesystem.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistogramDto {
+
+    private double mean;
+    private long p50;
+    private long p95;
+    private long p99;
+    private long max;
+
+}
@@ -0,0 +1,32 @@
+package com.tradesystem.metrics;
+
+import com.tradesystem.security.AdminRole;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@AdminRole
+@RequestMapping("/metrics")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class MetricsController {
+
+    private EndpointMetricsRegistry endpointMetricsRegistry;
+
+
+    public MetricsController(EndpointMetricsRegistry endpointMetricsRegistry) {
+        this.endpointMetricsRegistry = endpointMetricsRegistry;
+    }
+
+
+    @GetMapping("/endpoints")
+    public List<EndpointMetricsDto> getEndpoints() {
+        return endpointMetricsRegistry.getAll();
+    }
+
+    @DeleteMapping("/endpoints")
+    public void reset() {
+        endpointMetricsRegistry.reset();
+    }
+
+}
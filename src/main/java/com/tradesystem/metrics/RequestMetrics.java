@@ -0,0 +1,62 @@
+package com.tradesystem.metrics;
+
+/**
+ * Counters of the request handled by the current thread. JDBC statements and entity
+ * loads are only counted between start and stop, everything else runs unmetered.
+ */
+public final class RequestMetrics {
+
+    private static final ThreadLocal<RequestMetrics> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private int statements;
+    private long jdbcNanos;
+    private int entityLoads;
+
+
+    private RequestMetrics() {
+    }
+
+
+    public static void start() {
+        CURRENT.set(new RequestMetrics());
+    }
+
+    public static RequestMetrics stop() {
+        RequestMetrics metrics = CURRENT.get();
+        CURRENT.remove();
+        return metrics;
+    }
+
+    static void recordStatement(long nanos) {
+        RequestMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            metrics.statements++;
+            metrics.jdbcNanos += nanos;
+        }
+    }
+
+    static void recordEntityLoad() {
+        RequestMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            metrics.entityLoads++;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getJdbcMillis() {
+        return jdbcNanos / 1_000_000;
+    }
+
+    public int getEntityLoads() {
+        return entityLoads;
+    }
+
+    public long getWallMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.tradesystem.metrics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Component
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    private EndpointMetricsRegistry endpointMetricsRegistry;
+
+
+    public RequestMetricsInterceptor(EndpointMetricsRegistry endpointMetricsRegistry) {
+        this.endpointMetricsRegistry = endpointMetricsRegistry;
+    }
+
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            RequestMetrics.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestMetrics requestMetrics = RequestMetrics.stop();
+        if (requestMetrics != null) {
+            endpointMetricsRegistry.record(endpoint(request), requestMetrics);
+        }
+    }
+
+    private String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+}
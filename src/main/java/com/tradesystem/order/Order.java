@@ -2,6 +2,7 @@ package com.tradesystem.order;
 
 import com.tradesystem.buyer.Buyer;
 import com.tradesystem.orderdetails.OrderDetails;
+import com.tradesystem.persistence.IdGenerators;
 import com.tradesystem.supplier.Supplier;
 import lombok.*;
 
@@ -15,11 +16,18 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(columnList = "date"),
+        @Index(columnList = "buyer_fk, date"),
+        @Index(columnList = "supplier_fk, date")
+})
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.ORDERS)
+    @TableGenerator(name = IdGenerators.ORDERS, table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.ORDERS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "order_id")
     private Long id;
 
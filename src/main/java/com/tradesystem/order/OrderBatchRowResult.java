@@ -0,0 +1,19 @@
+package com.tradesystem.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchRowResult {
+
+    private int index;
+    private boolean success;
+    private Long orderId;
+    private String error;
+
+}
@@ -0,0 +1,181 @@
+package com.tradesystem.order;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.invoice.MerchantLockService;
+import com.tradesystem.invoice.MerchantLockService.MerchantLocks;
+import com.tradesystem.orderdetails.OrderDetailsDto;
+import com.tradesystem.price.PriceCache;
+import com.tradesystem.product.Product;
+import com.tradesystem.product.ProductDao;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports many orders at once. Merchants, products and prices of the whole batch
+ * are read up front with a few IN queries, the prices into PriceCache, so orders are
+ * priced exactly like a single /order/create. Every order is then saved in its own
+ * transaction, so one bad row does not roll back the rest.
+ */
+@Log4j2
+@Service
+public class OrderBatchService {
+
+    private BuyerDao buyerDao;
+    private SupplierDao supplierDao;
+    private ProductDao productDao;
+    private PriceCache priceCache;
+    private OrderService orderService;
+    private MerchantLockService merchantLockService;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    private Logger logger = LogManager.getLogger(OrderBatchService.class);
+
+
+    public OrderBatchService(BuyerDao buyerDao, SupplierDao supplierDao, ProductDao productDao,
+                             PriceCache priceCache, OrderService orderService,
+                             MerchantLockService merchantLockService,
+                             PlatformTransactionManager transactionManager) {
+        this.buyerDao = buyerDao;
+        this.supplierDao = supplierDao;
+        this.productDao = productDao;
+        this.priceCache = priceCache;
+        this.orderService = orderService;
+        this.merchantLockService = merchantLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+
+    public List<OrderBatchRowResult> createOrders(List<CreateOrderRequest> createOrderRequests) {
+        long start = System.currentTimeMillis();
+        BatchContext context = readOnlyTransactionTemplate.execute(status -> prefetch(createOrderRequests));
+
+        List<OrderBatchRowResult> results = new ArrayList<>();
+        int created = 0;
+
+        for (int i = 0; i < createOrderRequests.size(); i++) {
+            OrderBatchRowResult result = createOrder(i, createOrderRequests.get(i), context);
+            if (result.isSuccess()) {
+                created++;
+            }
+            results.add(result);
+        }
+        logger.info("Import zamówień: dodano " + created + " z " + createOrderRequests.size()
+                + " w " + (System.currentTimeMillis() - start) + " ms");
+
+        return results;
+    }
+
+    private OrderBatchRowResult createOrder(int index, CreateOrderRequest createOrderRequest, BatchContext context) {
+        try (MerchantLocks locks = merchantLockService.lock(createOrderRequest.getBuyerId(), createOrderRequest.getSupplierId())) {
+            String error = context.validate(createOrderRequest);
+            if (error != null) {
+                return failure(index, error);
+            }
+
+            Order order = transactionTemplate.execute(status -> {
+                Buyer buyer = buyerDao.getOne(createOrderRequest.getBuyerId());
+                Supplier supplier = supplierDao.getOne(createOrderRequest.getSupplierId());
+
+                return orderService.createOrder(createOrderRequest, buyer, supplier, context.products);
+            });
+
+            return OrderBatchRowResult.builder()
+                    .index(index)
+                    .success(true)
+                    .orderId(order.getId())
+                    .build();
+        } catch (RuntimeException e) {
+            logger.warn("Import zamówień: nie dodano wiersza " + index + ": " + e);
+            return failure(index, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private OrderBatchRowResult failure(int index, String error) {
+        return OrderBatchRowResult.builder()
+                .index(index)
+                .success(false)
+                .error(error)
+                .build();
+    }
+
+    private BatchContext prefetch(List<CreateOrderRequest> createOrderRequests) {
+        Set<Long> buyerIds = new HashSet<>();
+        Set<Long> supplierIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+
+        for (CreateOrderRequest createOrderRequest : createOrderRequests) {
+            if (createOrderRequest.getBuyerId() != null) {
+                buyerIds.add(createOrderRequest.getBuyerId());
+            }
+            if (createOrderRequest.getSupplierId() != null) {
+                supplierIds.add(createOrderRequest.getSupplierId());
+            }
+            if (createOrderRequest.getOrderDetails() != null) {
+                for (OrderDetailsDto orderDetailsDto : createOrderRequest.getOrderDetails()) {
+                    if (orderDetailsDto.getProduct() != null && orderDetailsDto.getProduct().getId() != null) {
+                        productIds.add(orderDetailsDto.getProduct().getId());
+                    }
+                }
+            }
+        }
+
+        BatchContext context = new BatchContext();
+        if (!buyerIds.isEmpty()) {
+            context.buyerIds.addAll(buyerDao.findExistingIds(buyerIds));
+            priceCache.loadBuyersPrices(buyerIds);
+        }
+        if (!supplierIds.isEmpty()) {
+            context.supplierIds.addAll(supplierDao.findExistingIds(supplierIds));
+            priceCache.loadSuppliersPrices(supplierIds);
+        }
+        if (!productIds.isEmpty()) {
+            for (Product product : productDao.findAllById(productIds)) {
+                context.products.put(product.getId(), product);
+            }
+        }
+        return context;
+    }
+
+    private static class BatchContext {
+
+        private final Set<Long> buyerIds = new HashSet<>();
+        private final Set<Long> supplierIds = new HashSet<>();
+        private final Map<Long, Product> products = new HashMap<>();
+
+        private String validate(CreateOrderRequest createOrderRequest) {
+            if (!buyerIds.contains(createOrderRequest.getBuyerId())) {
+                return "Nie znaleziono kupca o id " + createOrderRequest.getBuyerId();
+            }
+            if (!supplierIds.contains(createOrderRequest.getSupplierId())) {
+                return "Nie znaleziono dostawcy o id " + createOrderRequest.getSupplierId();
+            }
+            if (createOrderRequest.getOrderDetails() == null) {
+                return null;
+            }
+            for (OrderDetailsDto orderDetailsDto : createOrderRequest.getOrderDetails()) {
+                if (orderDetailsDto.getProduct() != null && !products.containsKey(orderDetailsDto.getProduct().getId())) {
+                    return "Nie znaleziono produktu o id " + orderDetailsDto.getProduct().getId();
+                }
+            }
+            return null;
+        }
+    }
+
+}
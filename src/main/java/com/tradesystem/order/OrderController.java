@@ -1,58 +1,69 @@
 package com.tradesystem.order;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tradesystem.orderdetails.*;
-import com.tradesystem.user.RoleSecurity;
+import com.tradesystem.pagination.KeysetPage;
+import com.tradesystem.pagination.NdjsonWriter;
+import com.tradesystem.security.UserRole;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @Log4j2
 @RestController
+@UserRole
 @RequestMapping("/order")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class OrderController {
 
     private OrderService orderService;
+    private OrderBatchService orderBatchService;
     private OrderMapper orderMapper;
     private OrderDao orderDao;
     private OrderDetailsService orderDetailsService;
     private OrderDetailsMapper orderDetailsMapper;
     private UpdateOrderDetailsService updateOrderDetailsService;
-    private RoleSecurity roleSecurity;
+    private ObjectMapper objectMapper;
 
     private Logger logger = LogManager.getLogger(OrderController.class);
 
 
-    public OrderController(OrderService orderService, OrderMapper orderMapper,
+    public OrderController(OrderService orderService, OrderBatchService orderBatchService, OrderMapper orderMapper,
                            OrderDao orderDao, OrderDetailsService orderDetailsService,
-                           OrderDetailsMapper orderDetailsMapper, RoleSecurity roleSecurity,
-                           UpdateOrderDetailsService updateOrderDetailsService) {
+                           OrderDetailsMapper orderDetailsMapper,
+                           UpdateOrderDetailsService updateOrderDetailsService,
+                           ObjectMapper objectMapper) {
         this.orderService = orderService;
+        this.orderBatchService = orderBatchService;
         this.orderMapper = orderMapper;
         this.orderDao = orderDao;
         this.orderDetailsService = orderDetailsService;
         this.orderDetailsMapper = orderDetailsMapper;
         this.updateOrderDetailsService = updateOrderDetailsService;
-        this.roleSecurity = roleSecurity;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/create")
     public OrderDto createOrder(@RequestBody CreateOrderRequest createOrderRequest) {
         logger.info("Dodawanie zamówienia: " + createOrderRequest);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         final Order order = orderService.createOrder(createOrderRequest);
 
         return orderMapper.toDto(order);
     }
 
+    @PostMapping("/batch")
+    public List<OrderBatchRowResult> createOrders(@RequestBody List<CreateOrderRequest> createOrderRequests) {
+        logger.info("Dodawanie zamówień z importu, liczba: " + createOrderRequests.size());
+
+        return orderBatchService.createOrders(createOrderRequests);
+    }
+
     @GetMapping("/getAll")
     public List<OrderDto> getOrders() {
         final List<Order> ordersDto = orderService.getAllOrders();
@@ -60,14 +71,30 @@ public class OrderController {
         return orderMapper.toDto(ordersDto);
     }
 
+    @GetMapping("/getPage")
+    public KeysetPage<OrderDto> getPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                        @RequestParam(value = "size", required = false) Integer size) {
+        KeysetPage<OrderRow> page = orderService.getOrderRowsPage(cursor, size);
+
+        return new KeysetPage<>(orderMapper.fromRows(page.getItems()), page.getNextCursor());
+    }
+
+    @GetMapping("/stream")
+    public void stream(HttpServletResponse response) throws IOException {
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, response);
+
+        orderService.streamOrderRows(orderRows -> writer.write(orderMapper.fromRows(orderRows).get(0)));
+        writer.flush();
+    }
+
     @GetMapping("/getMonthOrders")
     public List<OrderDto> getMonthOrders(@RequestParam(value = "year") String year,
                                          @RequestParam(value = "month") String month) {
         int y = Integer.valueOf(year);
         int m = Integer.valueOf(month);
-        final List<Order> ordersDto = orderDao.getMonthOrders2(m, y);
+        final List<OrderRow> orderRows = orderService.getMonthOrderRows(m, y);
 
-        return orderMapper.toDto(ordersDto);
+        return orderMapper.fromRows(orderRows);
     }
 
     @GetMapping("/getOrderById")
@@ -81,9 +108,6 @@ public class OrderController {
     public void updateOrder(@RequestBody UpdateOrderDetailsRequest updateOrderDetailsRequest) {
         logger.info("Aktualizowanie zamówienia: " + updateOrderDetailsRequest);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         updateOrderDetailsService.updateOrder(updateOrderDetailsRequest);
     }
 
@@ -91,10 +115,7 @@ public class OrderController {
     public void deleteOrder(@RequestParam(value = "id") Long id) {
         logger.info("Usuwanie zamówienia: id=" + id);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
-       updateOrderDetailsService.deleteOrder(id);
+        updateOrderDetailsService.deleteOrder(id);
     }
 
 }
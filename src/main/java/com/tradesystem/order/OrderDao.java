@@ -1,45 +1,135 @@
 package com.tradesystem.order;
 
+import com.tradesystem.pagination.EntityStreamer;
+import com.tradesystem.period.DatePeriod;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
-import java.util.Set;
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository("orderDao")
 public interface OrderDao extends JpaRepository<Order, Long> {
 
+    String ORDER_ROW_SELECT = "SELECT new com.tradesystem.order.OrderRow(o.id, o.date, " +
+            "b.id, b.name, b.currentBalance, s.id, s.name, s.currentBalance, s.currentlyTakenQuantity, " +
+            "od.id, od.quantity, od.buyerSum, od.supplierSum, od.transportNumber, " +
+            "p.id, p.product, oc.id, oc.userComment, oc.systemComment) " +
+            "FROM Order o " +
+            "LEFT JOIN o.buyer b " +
+            "LEFT JOIN o.supplier s " +
+            "LEFT JOIN o.orderDetails od " +
+            "LEFT JOIN od.product p " +
+            "LEFT JOIN od.orderComment oc ";
+
     @Query(value = "SELECT * FROM orders o " +
             "LEFT JOIN order_details od ON od.order_fk = o.order_id " +
-            "WHERE MONTH(o.date) = ?1 AND YEAR(o.date) = ?2",
+            "WHERE o.date >= ?1 AND o.date < ?2",
             nativeQuery = true)
-    Set<Order> getMonthOrders(int month, int year);
+    Set<Order> getMonthOrders(LocalDate start, LocalDate end);
+
+    default Set<Order> getMonthOrders(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getMonthOrders(period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT orders FROM Order orders " +
             "LEFT JOIN FETCH orders.orderDetails " +
-            "WHERE YEAR(orders.date) = ?1")
-    Set<Order> getYearOrders(int year);
+            "WHERE orders.date >= ?1 AND orders.date < ?2")
+    Set<Order> getYearOrders(LocalDate start, LocalDate end);
+
+    default Set<Order> getYearOrders(int year) {
+        DatePeriod period = DatePeriod.ofYear(year);
+        return getYearOrders(period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT * FROM orders o " +
             "LEFT JOIN order_details od ON od.order_fk = o.order_id " +
-            "WHERE MONTH(o.date) = ?1 AND YEAR(o.date) = ?2",
+            "WHERE o.date >= ?1 AND o.date < ?2",
             nativeQuery = true)
-    List<Order> getMonthOrders2(int month, int year);
+    List<Order> getMonthOrders2(LocalDate start, LocalDate end);
+
+    default List<Order> getMonthOrders2(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getMonthOrders2(period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT * FROM orders o " +
-            "WHERE supplier_fk = ?1 AND MONTH(o.date) = ?2 AND YEAR(o.date) = ?3",
+            "WHERE supplier_fk = ?1 AND o.date >= ?2 AND o.date < ?3",
             nativeQuery = true)
-    List<Order> getSupplierMonthOrders(Long supplierId, int month, int year);
+    List<Order> getSupplierMonthOrders(Long supplierId, LocalDate start, LocalDate end);
+
+    default List<Order> getSupplierMonthOrders(Long supplierId, int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getSupplierMonthOrders(supplierId, period.getStart(), period.getEnd());
+    }
 
 
     @Query(value = "SELECT * FROM orders o " +
-            "WHERE buyer_fk = ?1 AND MONTH(o.date) = ?2 AND YEAR(o.date) = ?3",
+            "WHERE buyer_fk = ?1 AND o.date >= ?2 AND o.date < ?3",
             nativeQuery = true)
-    List<Order> getBuyerMonthOrders(Long buyerId, int month, int year);
+    List<Order> getBuyerMonthOrders(Long buyerId, LocalDate start, LocalDate end);
+
+    default List<Order> getBuyerMonthOrders(Long buyerId, int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getBuyerMonthOrders(buyerId, period.getStart(), period.getEnd());
+    }
+
+
+    @Query(value = ORDER_ROW_SELECT +
+            "WHERE o.date >= ?1 AND o.date < ?2 " +
+            "ORDER BY o.id, od.id")
+    List<OrderRow> getMonthOrderRows(LocalDate start, LocalDate end);
+
+    default List<OrderRow> getMonthOrderRows(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getMonthOrderRows(period.getStart(), period.getEnd());
+    }
+
+
+    @Query(value = ORDER_ROW_SELECT +
+            "WHERE b.id = ?1 AND o.date >= ?2 AND o.date < ?3 " +
+            "ORDER BY o.id, od.id")
+    List<OrderRow> getBuyerMonthOrderRows(Long buyerId, LocalDate start, LocalDate end);
+
+    default List<OrderRow> getBuyerMonthOrderRows(Long buyerId, int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getBuyerMonthOrderRows(buyerId, period.getStart(), period.getEnd());
+    }
+
+
+    @Query(value = ORDER_ROW_SELECT +
+            "WHERE s.id = ?1 AND o.date >= ?2 AND o.date < ?3 " +
+            "ORDER BY o.id, od.id")
+    List<OrderRow> getSupplierMonthOrderRows(Long supplierId, LocalDate start, LocalDate end);
+
+    default List<OrderRow> getSupplierMonthOrderRows(Long supplierId, int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getSupplierMonthOrderRows(supplierId, period.getStart(), period.getEnd());
+    }
+
+    @Query(value = "SELECT o.id FROM Order o WHERE o.id > ?1 ORDER BY o.id")
+    List<Long> getIdsAfter(Long id, Pageable pageable);
+
+    @Query(value = ORDER_ROW_SELECT +
+            "WHERE o.id IN ?1 " +
+            "ORDER BY o.id, od.id")
+    List<OrderRow> getOrderRows(Collection<Long> ids);
 
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EntityStreamer.FETCH_SIZE))
+    @Query(value = ORDER_ROW_SELECT +
+            "ORDER BY o.id, od.id")
+    Stream<OrderRow> streamOrderRows();
+}
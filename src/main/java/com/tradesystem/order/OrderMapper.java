@@ -3,14 +3,19 @@ package com.tradesystem.order;
 import com.tradesystem.buyer.Buyer;
 import com.tradesystem.buyer.BuyerDto;
 import com.tradesystem.buyer.BuyerMapper;
+import com.tradesystem.ordercomment.OrderCommentDto;
 import com.tradesystem.orderdetails.OrderDetailsDto;
 import com.tradesystem.orderdetails.OrderDetailsMapper;
+import com.tradesystem.product.ProductDto;
 import com.tradesystem.supplier.Supplier;
 import com.tradesystem.supplier.SupplierDto;
 import com.tradesystem.supplier.SupplierMapper;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Component
@@ -50,4 +55,80 @@ public class OrderMapper {
 
     }
 
+    /**
+     * Builds orders from rows sorted by order id, one row per order detail.
+     */
+    public List<OrderDto> fromRows(List<OrderRow> rows) {
+        Map<Long, OrderDto> orders = new LinkedHashMap<>();
+
+        for (OrderRow row : rows) {
+            OrderDto orderDto = orders.get(row.getOrderId());
+
+            if (orderDto == null) {
+                orderDto = OrderDto.builder()
+                        .id(row.getOrderId())
+                        .date(row.getDate())
+                        .buyer(toBuyerDto(row))
+                        .supplier(toSupplierDto(row))
+                        .orderDetails(new ArrayList<>())
+                        .build();
+                orders.put(row.getOrderId(), orderDto);
+            }
+            if (row.getOrderDetailsId() != null) {
+                orderDto.getOrderDetails().add(toOrderDetailsDto(row));
+            }
+        }
+        return new ArrayList<>(orders.values());
+    }
+
+    private BuyerDto toBuyerDto(OrderRow row) {
+        if (row.getBuyerId() == null) {
+            return null;
+        }
+        return BuyerDto.builder()
+                .id(row.getBuyerId())
+                .name(row.getBuyerName())
+                .currentBalance(row.getBuyerBalance())
+                .build();
+    }
+
+    private SupplierDto toSupplierDto(OrderRow row) {
+        if (row.getSupplierId() == null) {
+            return null;
+        }
+        return SupplierDto.builder()
+                .id(row.getSupplierId())
+                .name(row.getSupplierName())
+                .currentBalance(row.getSupplierBalance())
+                .currentlyTakenQuantity(row.getSupplierTakenQuantity())
+                .build();
+    }
+
+    private OrderDetailsDto toOrderDetailsDto(OrderRow row) {
+        ProductDto productDto = null;
+        if (row.getProductId() != null) {
+            productDto = ProductDto.builder()
+                    .id(row.getProductId())
+                    .product(row.getProductName())
+                    .build();
+        }
+
+        OrderCommentDto orderCommentDto = null;
+        if (row.getOrderCommentId() != null) {
+            orderCommentDto = OrderCommentDto.builder()
+                    .userComment(row.getUserComment())
+                    .systemComment(row.getSystemComment())
+                    .build();
+        }
+
+        return OrderDetailsDto.builder()
+                .quantity(row.getQuantity())
+                .buyerSum(row.getBuyerSum())
+                .supplierSum(row.getSupplierSum())
+                .product(productDto)
+                .orderComment(orderCommentDto)
+                .transportNumber(row.getTransportNumber())
+                .build();
+    }
+
 }
@@ -0,0 +1,37 @@
+package com.tradesystem.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One order detail together with its order, merchants, product and comment,
+ * read in a single row so an order listing does not load them one by one.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderRow {
+
+    private Long orderId;
+    private LocalDate date;
+    private Long buyerId;
+    private String buyerName;
+    private BigDecimal buyerBalance;
+    private Long supplierId;
+    private String supplierName;
+    private BigDecimal supplierBalance;
+    private BigDecimal supplierTakenQuantity;
+    private Long orderDetailsId;
+    private BigDecimal quantity;
+    private BigDecimal buyerSum;
+    private BigDecimal supplierSum;
+    private String transportNumber;
+    private Long productId;
+    private String productName;
+    private Long orderCommentId;
+    private String userComment;
+    private String systemComment;
+
+}
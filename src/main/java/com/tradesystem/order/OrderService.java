@@ -2,21 +2,32 @@ package com.tradesystem.order;
 
 import com.tradesystem.buyer.Buyer;
 import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.invoice.MerchantLockService;
+import com.tradesystem.invoice.MerchantLockService.MerchantLocks;
 import com.tradesystem.orderdetails.OrderDetails;
 import com.tradesystem.orderdetails.OrderDetailsDto;
 import com.tradesystem.orderdetails.OrderDetailsService;
+import com.tradesystem.pagination.EntityStreamer;
+import com.tradesystem.pagination.KeysetCursor;
+import com.tradesystem.pagination.KeysetPage;
 import com.tradesystem.product.Product;
 import com.tradesystem.product.ProductDao;
 import com.tradesystem.supplier.Supplier;
 import com.tradesystem.supplier.SupplierDao;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 @Service
@@ -27,14 +38,22 @@ public class OrderService {
     private ProductDao productDao;
     private OrderDao orderDao;
     private OrderDetailsService orderDetailsService;
+    private EntityStreamer entityStreamer;
+    private MerchantLockService merchantLockService;
+    private TransactionTemplate transactionTemplate;
 
     public OrderService(BuyerDao buyerDao, SupplierDao supplierDao, ProductDao productDao,
-                        OrderDetailsService orderDetailsService, OrderDao orderDao) {
+                        OrderDetailsService orderDetailsService, OrderDao orderDao,
+                        EntityStreamer entityStreamer, MerchantLockService merchantLockService,
+                        PlatformTransactionManager transactionManager) {
         this.buyerDao = buyerDao;
         this.supplierDao = supplierDao;
         this.productDao = productDao;
         this.orderDetailsService = orderDetailsService;
         this.orderDao = orderDao;
+        this.entityStreamer = entityStreamer;
+        this.merchantLockService = merchantLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
@@ -42,6 +61,45 @@ public class OrderService {
         return orderDao.findAll();
     }
 
+    /**
+     * Rows of a page of orders, the page is cut on whole orders and not on rows.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<OrderRow> getOrderRowsPage(String cursor, Integer size) {
+        int pageSize = KeysetCursor.size(size);
+        List<Long> ids = orderDao.getIdsAfter(KeysetCursor.decode(cursor), KeysetCursor.limit(pageSize));
+        KeysetPage<Long> idsPage = KeysetPage.of(ids, pageSize, Function.identity());
+
+        List<OrderRow> rows = idsPage.getItems().isEmpty()
+                ? new ArrayList<>()
+                : orderDao.getOrderRows(idsPage.getItems());
+
+        return new KeysetPage<>(rows, idsPage.getNextCursor());
+    }
+
+    /**
+     * Passes the rows of every order, one order at a time, to the action.
+     */
+    @Transactional(readOnly = true)
+    public int streamOrderRows(Consumer<List<OrderRow>> action) {
+        List<OrderRow> orderRows = new ArrayList<>();
+        int[] orders = new int[1];
+
+        entityStreamer.forEach(orderDao.streamOrderRows(), row -> {
+            if (!orderRows.isEmpty() && !orderRows.get(0).getOrderId().equals(row.getOrderId())) {
+                action.accept(new ArrayList<>(orderRows));
+                orderRows.clear();
+                orders[0]++;
+            }
+            orderRows.add(row);
+        });
+        if (!orderRows.isEmpty()) {
+            action.accept(orderRows);
+            orders[0]++;
+        }
+        return orders[0];
+    }
+
     @Transactional
     public Set<Order> getMonthOrders(int month, int year) {
         return orderDao.getMonthOrders(month, year);
@@ -53,14 +111,40 @@ public class OrderService {
                 .orElseThrow(RuntimeException::new);
     }
 
-    @Transactional
+    /**
+     * Paying for the order spends invoices of its buyer and supplier, so it holds their
+     * locks for the whole transaction, see MerchantLockService.
+     */
     public Order createOrder(CreateOrderRequest createOrderRequest) {
+        try (MerchantLocks locks = merchantLockService.lock(createOrderRequest.getBuyerId(), createOrderRequest.getSupplierId())) {
+            return transactionTemplate.execute(status -> create(createOrderRequest));
+        }
+    }
+
+    private Order create(CreateOrderRequest createOrderRequest) {
         Buyer buyer = buyerDao.findById(createOrderRequest.getBuyerId())
                 .orElseThrow(RuntimeException::new);
 
         Supplier supplier = supplierDao.findById(createOrderRequest.getSupplierId())
                 .orElseThrow(RuntimeException::new);
 
+        return createOrder(createOrderRequest, buyer, supplier, productId -> productDao.findById(productId)
+                .orElseThrow(NoSuchElementException::new));
+    }
+
+    /**
+     * Variant for callers that already loaded the merchants and products and hold
+     * the merchant locks, e.g. a batch import.
+     */
+    @Transactional
+    public Order createOrder(CreateOrderRequest createOrderRequest, Buyer buyer, Supplier supplier,
+                             Map<Long, Product> products) {
+        return createOrder(createOrderRequest, buyer, supplier, productId -> Optional.ofNullable(products.get(productId))
+                .orElseThrow(NoSuchElementException::new));
+    }
+
+    private Order createOrder(CreateOrderRequest createOrderRequest, Buyer buyer, Supplier supplier,
+                              Function<Long, Product> productResolver) {
         if (validateOrder(createOrderRequest)) {
             List<OrderDetailsDto> orderDetailsDtoList = createOrderRequest.getOrderDetails();
 
@@ -77,8 +161,7 @@ public class OrderService {
                 if (validateOrderDetail(orderDetailsDto)) {
                     OrderDetails orderDetails = new OrderDetails();
                     Long productId = orderDetailsDto.getProduct().getId();
-                    Product product = productDao.findById(productId)
-                            .orElseThrow(NoSuchElementException::new);
+                    Product product = productResolver.apply(productId);
 
                     orderDetails.setProduct(product);
                     orderDetails.setTypedSoldPrice(orderDetailsDto.getTypedSoldPrice());
@@ -122,6 +205,21 @@ public class OrderService {
         return orderDao.getBuyerMonthOrders(buyerId, month, year);
     }
 
+    @Transactional(readOnly = true)
+    public List<OrderRow> getMonthOrderRows(int month, int year) {
+        return orderDao.getMonthOrderRows(month, year);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderRow> getBuyerMonthOrderRows(Long buyerId, int month, int year) {
+        return orderDao.getBuyerMonthOrderRows(buyerId, month, year);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderRow> getSupplierMonthOrderRows(Long supplierId, int month, int year) {
+        return orderDao.getSupplierMonthOrderRows(supplierId, month, year);
+    }
+
     @Transactional
     public Order calculateOrder(Order order) {
         List<OrderDetails> orderDetails = order.getOrderDetails();
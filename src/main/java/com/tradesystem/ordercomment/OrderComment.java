@@ -1,5 +1,6 @@
 package com.tradesystem.ordercomment;
 
+import com.tradesystem.persistence.IdGenerators;
 import lombok.Data;
 
 import javax.persistence.*;
@@ -10,7 +11,10 @@ import javax.persistence.*;
 public class OrderComment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.ORDER_COMMENTS)
+    @TableGenerator(name = IdGenerators.ORDER_COMMENTS, table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.ORDER_COMMENTS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "order_comment_id")
     private Long id;
 
@@ -2,7 +2,7 @@ package com.tradesystem.ordercomment;
 
 import com.tradesystem.buyer.Buyer;
 import com.tradesystem.invoice.Invoice;
-import com.tradesystem.invoice.InvoiceDao;
+import com.tradesystem.invoice.InvoiceLedger;
 import com.tradesystem.orderdetails.OrderDetails;
 import com.tradesystem.supplier.Supplier;
 
@@ -15,12 +15,12 @@ import java.util.Optional;
 public class OrderCommentService {
 
 
-    private InvoiceDao invoiceDao;
+    private InvoiceLedger invoiceLedger;
     private OrderCommentDao orderCommentDao;
 
 
-    public OrderCommentService(InvoiceDao invoiceDao, OrderCommentDao orderCommentDao) {
-        this.invoiceDao = invoiceDao;
+    public OrderCommentService(InvoiceLedger invoiceLedger, OrderCommentDao orderCommentDao) {
+        this.invoiceLedger = invoiceLedger;
         this.orderCommentDao = orderCommentDao;
     }
 
@@ -35,7 +35,7 @@ public class OrderCommentService {
             OrderComment orderComment = orderDetails.getOrderComment();
             Supplier supplier = orderDetails.getOrder().getSupplier();
             Buyer buyer = orderDetails.getOrder().getBuyer();
-            Optional<Invoice> supplierNegativeInvoice = invoiceDao.getSupplierNegativeInvoice(supplier.getId());
+            Optional<Invoice> supplierNegativeInvoice = invoiceLedger.getSupplierNegativeInvoice(supplier.getId());
 
             if (supplierNegativeInvoice.isPresent()) {
                 addSupplierLackAmountComment(orderDetails, negativeValue, orderComment, previousComment, invoice);
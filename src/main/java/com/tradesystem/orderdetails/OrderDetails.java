@@ -2,7 +2,9 @@ package com.tradesystem.orderdetails;
 
 import com.tradesystem.order.Order;
 import com.tradesystem.ordercomment.OrderComment;
+import com.tradesystem.orderfact.OrderFactListener;
 import com.tradesystem.payment.Payment;
+import com.tradesystem.persistence.IdGenerators;
 import com.tradesystem.product.Product;
 import lombok.Getter;
 import lombok.Setter;
@@ -16,11 +18,15 @@ import java.math.BigDecimal;
 @Getter
 @Setter
 @Table(name = "order_details")
+@EntityListeners(OrderFactListener.class)
 public class OrderDetails {
 
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.ORDER_DETAILS)
+    @TableGenerator(name = IdGenerators.ORDER_DETAILS, table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.ORDER_DETAILS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "order_details_id")
     private Long id;
 
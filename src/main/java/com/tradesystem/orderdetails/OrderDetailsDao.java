@@ -1,9 +1,40 @@
 package com.tradesystem.orderdetails;
 
+import com.tradesystem.period.DatePeriod;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @Repository("orderDetailsDao")
 public interface OrderDetailsDao extends JpaRepository<OrderDetails, Long> {
 
+    @Query(value = "SELECT new com.tradesystem.orderdetails.OrderDetailsSummary(" +
+            "SUM(od.buyerSum), SUM(od.supplierSum), SUM(od.quantity)) " +
+            "FROM OrderDetails od " +
+            "WHERE od.order.date >= ?1 AND od.order.date < ?2")
+    OrderDetailsSummary getMonthSummary(LocalDate start, LocalDate end);
+
+    default OrderDetailsSummary getMonthSummary(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getMonthSummary(period.getStart(), period.getEnd());
+    }
+
+    /**
+     * Order lines of a period as OrderFact rows: id, date, buyer id, supplier id,
+     * product id, quantity, buyer sum and supplier sum.
+     */
+    @Query(value = "SELECT od.id, o.date, o.buyer.id, o.supplier.id, od.product.id, " +
+            "od.quantity, od.buyerSum, od.supplierSum " +
+            "FROM OrderDetails od JOIN od.order o " +
+            "WHERE o.date >= ?1 AND o.date < ?2")
+    List<Object[]> getFacts(LocalDate start, LocalDate end);
+
+    default List<Object[]> getMonthFacts(int month, int year) {
+        DatePeriod period = DatePeriod.ofMonth(month, year);
+        return getFacts(period.getStart(), period.getEnd());
+    }
+
 }
@@ -3,14 +3,17 @@ package com.tradesystem.orderdetails;
 import com.tradesystem.buyer.Buyer;
 import com.tradesystem.invoice.Invoice;
 import com.tradesystem.invoice.InvoiceDao;
+import com.tradesystem.invoice.InvoiceLedger;
+import com.tradesystem.money.Money;
 import com.tradesystem.ordercomment.OrderComment;
 import com.tradesystem.ordercomment.OrderCommentDao;
 import com.tradesystem.ordercomment.OrderCommentService;
 import com.tradesystem.payment.Payment;
 import com.tradesystem.payment.PaymentDao;
-import com.tradesystem.price.PriceDao;
+import com.tradesystem.price.PriceCache;
 import com.tradesystem.price.pricehistory.PriceHistoryService;
 import com.tradesystem.product.Product;
+import com.tradesystem.report.ReportLedgerService;
 import com.tradesystem.supplier.Supplier;
 
 import org.springframework.stereotype.Service;
@@ -27,25 +30,30 @@ import java.util.*;
 public class OrderDetailsService {
 
 
-    private PriceDao priceDao;
+    private PriceCache priceCache;
     private InvoiceDao invoiceDao;
+    private InvoiceLedger invoiceLedger;
     private OrderDetailsDao orderDetailsDao;
     private OrderCommentService orderCommentService;
     private OrderCommentDao orderCommentDao;
     private PaymentDao paymentDao;
     private PriceHistoryService priceHistoryService;
+    private ReportLedgerService reportLedgerService;
 
 
-    public OrderDetailsService(PriceDao priceDao, InvoiceDao invoiceDao, OrderDetailsDao orderDetailsDao,
+    public OrderDetailsService(PriceCache priceCache, InvoiceDao invoiceDao, OrderDetailsDao orderDetailsDao,
                                OrderCommentService orderCommentService, OrderCommentDao orderCommentDao,
-                               PaymentDao paymentDao, PriceHistoryService priceHistoryService) {
-        this.priceDao = priceDao;
+                               PaymentDao paymentDao, PriceHistoryService priceHistoryService,
+                               ReportLedgerService reportLedgerService, InvoiceLedger invoiceLedger) {
+        this.priceCache = priceCache;
         this.invoiceDao = invoiceDao;
+        this.invoiceLedger = invoiceLedger;
         this.orderDetailsDao = orderDetailsDao;
         this.orderCommentService = orderCommentService;
         this.orderCommentDao = orderCommentDao;
         this.paymentDao = paymentDao;
         this.priceHistoryService = priceHistoryService;
+        this.reportLedgerService = reportLedgerService;
     }
 
     @Transactional
@@ -55,6 +63,7 @@ public class OrderDetailsService {
         orderDetails.setBuyerSum(buyerSum);
         orderDetails.setSupplierSum(supplierSum);
         orderDetailsDao.save(orderDetails);
+        reportLedgerService.addOrderDetails(orderDetails.getOrder().getDate(), buyerSum, supplierSum, orderDetails.getQuantity());
 
         if (orderDetails.isCreateBuyerInvoice()) {
             createBuyerInvoice(orderDetails, buyerSum);
@@ -80,17 +89,17 @@ public class OrderDetailsService {
 
         BigDecimal price;
 
-        if (orderDetails.getTypedSoldPrice().doubleValue() > 0) {
+        if (orderDetails.getTypedSoldPrice() != null && orderDetails.getTypedSoldPrice().doubleValue() > 0) {
             price = orderDetails.getTypedSoldPrice();
         } else {
-            price = priceDao.getBuyerPrice(buyerId, productId);
+            price = priceCache.getBuyerPrice(buyerId, productId);
         }
 
         if (price != null) {
             Buyer buyer = orderDetails.getOrder().getBuyer();
             Supplier supplier = orderDetails.getOrder().getSupplier();
             Product product = orderDetails.getProduct();
-            priceHistoryService.createPriceHistory(buyer, supplier, product, price);
+            priceHistoryService.createPriceHistory(buyer, supplier, product, price, orderDetails.getOrder().getDate());
             return quantity.multiply(price).setScale(2, RoundingMode.HALF_UP);
         } else {
             throw new RuntimeException("Kupiec nie ma ustawionej ceny dla tego produktu");
@@ -105,10 +114,10 @@ public class OrderDetailsService {
 
         BigDecimal price;
 
-        if (orderDetails.getTypedBoughtPrice().doubleValue() > 0) {
+        if (orderDetails.getTypedBoughtPrice() != null && orderDetails.getTypedBoughtPrice().doubleValue() > 0) {
             price = orderDetails.getTypedBoughtPrice();
         } else {
-            price = priceDao.getSupplierPrice(supplierId, productId);
+            price = priceCache.getSupplierPrice(supplierId, productId);
         }
 
         if (price != null) {
@@ -121,14 +130,14 @@ public class OrderDetailsService {
 
     private void payForSupplierOrder2(OrderDetails orderDetails, BigDecimal amount) {
         Long supplierId = orderDetails.getOrder().getSupplier().getId();
-        List<Invoice> invoices = invoiceDao.getSupplierNotUsedInvoices(supplierId);
+        List<Invoice> invoices = invoiceLedger.getSupplierOpenInvoices(supplierId);
 
         payForSupplierOrder(orderDetails, amount, invoices);
     }
 
     public void payForBuyerOrder2(OrderDetails orderDetails, BigDecimal amount) {
         Long buyerId = orderDetails.getOrder().getBuyer().getId();
-        List<Invoice> invoices = invoiceDao.getBuyerNotUsedInvoices(buyerId);
+        List<Invoice> invoices = invoiceLedger.getBuyerOpenInvoices(buyerId);
 
         //invoices.sort(Comparator.comparing(Invoice::getId));
 
@@ -136,9 +145,9 @@ public class OrderDetailsService {
     }
 
 
-    private void payForSupplierOrder(OrderDetails orderDetails, BigDecimal amount, List<Invoice> invoices) {
-        BigDecimal amountToPay = amount;
-        amountToPay = amountToPay.setScale(2, RoundingMode.HALF_UP);
+    private void payForSupplierOrder(OrderDetails orderDetails, BigDecimal orderAmount, List<Invoice> invoices) {
+        Money amount = Money.of(orderAmount);
+        Money amountToPay = Money.of(orderAmount);
         List<String> invoiceNumbers = new ArrayList<>();
         int countedInvoices = 0;
         OrderComment orderComment;
@@ -146,13 +155,13 @@ public class OrderDetailsService {
         for (Invoice invoice : invoices) {
             createSupplierPayment(orderDetails, invoice);
 
-            BigDecimal invoiceValue = invoice.getAmountToUse();
-
+            Money invoiceValue = Money.of(invoice.getAmountToUse());
+            int leftover = invoiceValue.subtract(amountToPay).signum();
             countedInvoices++;
 
-            if (invoiceValue.subtract(amountToPay).compareTo(BigDecimal.ZERO) > 0) {
-                invoice.setAmountToUse(invoiceValue.subtract(amountToPay));
-                amount = BigDecimal.valueOf(0.0);
+            if (leftover > 0) {
+                invoice.setAmountToUse(invoiceValue.subtract(amountToPay).toBigDecimal());
+                amount = Money.ZERO;
 
                 saveInvoice(invoice, false);
 
@@ -165,60 +174,48 @@ public class OrderDetailsService {
                     orderDetails.setOrderComment(orderComment);
                     orderCommentDao.save(orderComment);
                 } else {
-                    orderCommentService.addSupplierComment(orderDetails, amountToPay, invoice);
+                    orderCommentService.addSupplierComment(orderDetails, amountToPay.toBigDecimal(), invoice);
                 }
                 orderDetailsDao.save(orderDetails);
                 break;
 
-            } else if (invoiceValue.subtract(amountToPay).compareTo(BigDecimal.ZERO) < 0) {
-                invoice.setAmountToUse(BigDecimal.valueOf(0.0));
+            } else if (leftover < 0) {
+                invoice.setAmountToUse(Money.ZERO.toBigDecimal());
                 amount = amount.subtract(invoiceValue);
                 amountToPay = amount;
 
-                orderCommentService.addSupplierComment(orderDetails, invoiceValue, invoice);
-
+                orderCommentService.addSupplierComment(orderDetails, invoiceValue.toBigDecimal(), invoice);
                 orderDetailsDao.save(orderDetails);
                 saveInvoice(invoice, true);
                 invoiceNumbers.add(invoice.getInvoiceNumber());
 
-            } else if (invoiceValue.subtract(amountToPay).compareTo(BigDecimal.ZERO) == 0) {
-
-                invoice.setAmountToUse(BigDecimal.valueOf(0.0));
+            } else if (leftover == 0) {
+                invoice.setAmountToUse(Money.ZERO.toBigDecimal());
                 saveInvoice(invoice, true);
 
-                orderCommentService.addSupplierComment(orderDetails, invoiceValue, invoice);
-                invoiceNumbers.add(invoice.getInvoiceNumber());
-                amount = BigDecimal.valueOf(0.0);
-                break;
-
-            } else if (amount.compareTo(BigDecimal.ZERO) == 0) {
-                saveInvoice(invoice, true);
+                orderCommentService.addSupplierComment(orderDetails, invoiceValue.toBigDecimal(), invoice);
                 invoiceNumbers.add(invoice.getInvoiceNumber());
-                break;
-
-            } else {
-                saveInvoice(invoice, false);
+                amount = Money.ZERO;
                 break;
             }
         }
 
-        if (amount.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal negativeValue = amount.multiply(BigDecimal.valueOf(-1));
+        if (amount.signum() > 0) {
+            BigDecimal negativeValue = amount.negate().toBigDecimal();
             createSupplierNegativeInvoice(negativeValue, orderDetails);
 
             Supplier supplier = orderDetails.getOrder().getSupplier();
-            Invoice negativeInvoice = invoiceDao.getSupplierNegativeInvoice(supplier.getId())
+            Invoice negativeInvoice = invoiceLedger.getSupplierNegativeInvoice(supplier.getId())
                     .orElseThrow(RuntimeException::new);
-            //Invoice negativeInvoice = optionalInvoice.get();
             orderCommentService.addLackAmountComment(orderDetails, negativeValue, negativeInvoice);
             orderDetailsDao.save(orderDetails);
         }
 
     }
 
-    private void payForBuyerOrder(OrderDetails orderDetails, BigDecimal amount, List<Invoice> invoices) {
-        BigDecimal amountToPay = orderDetails.getBuyerSum();
-        amountToPay = amountToPay.setScale(2, RoundingMode.HALF_UP);
+    private void payForBuyerOrder(OrderDetails orderDetails, BigDecimal orderAmount, List<Invoice> invoices) {
+        Money amount = Money.of(orderAmount);
+        Money amountToPay = Money.of(orderDetails.getBuyerSum());
         List<String> invoiceNumbers = new ArrayList<>();
         int countedInvoices = 0;
         OrderComment orderComment;
@@ -226,13 +223,13 @@ public class OrderDetailsService {
         for (Invoice invoice : invoices) {
             createBuyerPayment(orderDetails, invoice);
 
-            BigDecimal invoiceValue = invoice.getAmountToUse();
+            Money invoiceValue = Money.of(invoice.getAmountToUse());
+            int leftover = invoiceValue.subtract(amountToPay).signum();
             countedInvoices++;
 
-            if (invoiceValue.subtract(amountToPay).compareTo(BigDecimal.ZERO) > 0) {
-
-                invoice.setAmountToUse(invoiceValue.subtract(amountToPay));
-                amount = BigDecimal.valueOf(0.0);
+            if (leftover > 0) {
+                invoice.setAmountToUse(invoiceValue.subtract(amountToPay).toBigDecimal());
+                amount = Money.ZERO;
 
                 saveInvoice(invoice, false);
 
@@ -240,57 +237,44 @@ public class OrderDetailsService {
 
                 if (countedInvoices > 1) {
                     String previousComment = orderDetails.getOrderComment().getSystemComment();
-
                     orderComment = orderDetails.getOrderComment();
                     orderComment.setSystemComment(previousComment + ", " + amountToPay + " z FV nr " + invoiceNumbers.get(countedInvoices - 1));
                     orderDetails.setOrderComment(orderComment);
                     orderCommentDao.save(orderComment);
                 } else {
-                    orderCommentService.addBuyerComment(orderDetails, amountToPay, invoice);
+                    orderCommentService.addBuyerComment(orderDetails, amountToPay.toBigDecimal(), invoice);
                 }
                 orderDetailsDao.save(orderDetails);
                 break;
 
-            } else if (invoiceValue.subtract(amountToPay).compareTo(BigDecimal.ZERO) < 0) {
-                invoice.setAmountToUse(BigDecimal.valueOf(0.0));
+            } else if (leftover < 0) {
+                invoice.setAmountToUse(Money.ZERO.toBigDecimal());
                 amount = amount.subtract(invoiceValue);
                 amountToPay = amount;
 
-                orderCommentService.addBuyerComment(orderDetails, invoiceValue, invoice);
+                orderCommentService.addBuyerComment(orderDetails, invoiceValue.toBigDecimal(), invoice);
                 orderDetailsDao.save(orderDetails);
                 saveInvoice(invoice, true);
                 invoiceNumbers.add(invoice.getInvoiceNumber());
 
-            } else if (invoiceValue.subtract(amountToPay).compareTo(BigDecimal.ZERO) == 0) {
-
-                invoice.setAmountToUse(BigDecimal.valueOf(0.0));
+            } else if (leftover == 0) {
+                invoice.setAmountToUse(Money.ZERO.toBigDecimal());
                 saveInvoice(invoice, true);
 
-                orderCommentService.addBuyerComment(orderDetails, invoiceValue, invoice);
-
-                invoiceNumbers.add(invoice.getInvoiceNumber());
-                amount = BigDecimal.valueOf(0.0);
-                break;
-
-            } else if (amount.compareTo(BigDecimal.ZERO) == 0) {
-                saveInvoice(invoice, true);
+                orderCommentService.addBuyerComment(orderDetails, invoiceValue.toBigDecimal(), invoice);
                 invoiceNumbers.add(invoice.getInvoiceNumber());
-                break;
-
-            } else {
-                saveInvoice(invoice, false);
+                amount = Money.ZERO;
                 break;
             }
         }
 
-        if (amount.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal negativeValue = amount.multiply(BigDecimal.valueOf(-1));
+        if (amount.signum() > 0) {
+            BigDecimal negativeValue = amount.negate().toBigDecimal();
             createBuyerNegativeInvoice(negativeValue, orderDetails);
 
             Buyer buyer = orderDetails.getOrder().getBuyer();
-            Invoice negativeInvoice = invoiceDao.getBuyerNegativeInvoice(buyer.getId())
+            Invoice negativeInvoice = invoiceLedger.getBuyerNegativeInvoice(buyer.getId())
                     .orElseThrow(RuntimeException::new);
-            //Invoice negativeInvoice = optionalInvoice.get();
             orderCommentService.addLackAmountComment(orderDetails, negativeValue, negativeInvoice);
             orderDetailsDao.save(orderDetails);
         }
@@ -299,16 +283,14 @@ public class OrderDetailsService {
 
     private void createBuyerNegativeInvoice(BigDecimal amount, OrderDetails orderDetails) {
         Buyer buyer = orderDetails.getOrder().getBuyer();
-        Optional<Invoice> negativeInvoice = invoiceDao.getBuyerNegativeInvoice(buyer.getId());
+        Optional<Invoice> negativeInvoice = invoiceLedger.getBuyerNegativeInvoice(buyer.getId());
 
         if (negativeInvoice.isPresent()) {
             Invoice invoice = negativeInvoice.get();
-            BigDecimal invoiceValue = invoice.getValue();
-            BigDecimal invoiceAmount = invoice.getAmountToUse();
-            BigDecimal newInvoiceAmount = invoiceAmount.add(amount);
-            invoice.setValue(invoiceValue.add(amount));
-            invoice.setAmountToUse(newInvoiceAmount);
-            invoiceDao.save(invoice);
+            Money invoiceValue = Money.of(invoice.getValue());
+            Money invoiceAmount = Money.of(invoice.getAmountToUse());
+            invoice.setValue(invoiceValue.add(Money.of(amount)).toBigDecimal());
+            invoice.setAmountToUse(invoiceAmount.add(Money.of(amount)).toBigDecimal());
 
             createBuyerPayment(orderDetails, invoice);
         } else {
@@ -319,6 +301,7 @@ public class OrderDetailsService {
             invoice.setDate(LocalDate.now());
             invoice.setBuyer(buyer);
             invoiceDao.save(invoice);
+            invoiceLedger.setBuyerNegativeInvoice(buyer.getId(), invoice);
 
             createBuyerPayment(orderDetails, invoice);
         }
@@ -327,15 +310,13 @@ public class OrderDetailsService {
 
     private void createSupplierNegativeInvoice(BigDecimal amount, OrderDetails orderDetails) {
         Supplier supplier = orderDetails.getOrder().getSupplier();
-        Optional<Invoice> negativeInvoice = invoiceDao.getSupplierNegativeInvoice(supplier.getId());
+        Optional<Invoice> negativeInvoice = invoiceLedger.getSupplierNegativeInvoice(supplier.getId());
 
         if (negativeInvoice.isPresent()) {
             Invoice invoice = negativeInvoice.get();
-            BigDecimal invoiceAmount = invoice.getAmountToUse();
-            BigDecimal newInvoiceAmount = invoiceAmount.add(amount);
+            Money invoiceAmount = Money.of(invoice.getAmountToUse());
 
-            invoice.setAmountToUse(newInvoiceAmount);
-            invoiceDao.save(invoice);
+            invoice.setAmountToUse(invoiceAmount.add(Money.of(amount)).toBigDecimal());
 
             createSupplierPayment(orderDetails, invoice);
         } else {
@@ -346,6 +327,7 @@ public class OrderDetailsService {
             invoice.setDate(LocalDate.now());
             invoice.setSupplier(supplier);
             invoiceDao.save(invoice);
+            invoiceLedger.setSupplierNegativeInvoice(supplier.getId(), invoice);
 
             createSupplierPayment(orderDetails, invoice);
         }
@@ -353,7 +335,7 @@ public class OrderDetailsService {
 
     private void saveInvoice(Invoice invoice, boolean isUsed) {
         invoice.setUsed(isUsed);
-        invoiceDao.save(invoice);
+        invoiceLedger.update(invoice);
     }
 
     private void createBuyerPayment(OrderDetails orderDetails, Invoice invoice) {
@@ -383,6 +365,7 @@ public class OrderDetailsService {
                 .build();
         invoiceDao.save(invoice);
         createBuyerPayment(orderDetails, invoice);
+        reportLedgerService.refreshNotPaidInvoices(invoice.getDate());
     }
 
     public void addSystemComment(OrderDetails orderDetails) {
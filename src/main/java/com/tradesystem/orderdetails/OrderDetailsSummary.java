@@ -0,0 +1,20 @@
+package com.tradesystem.orderdetails;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+public class OrderDetailsSummary {
+
+    private BigDecimal buyerSum;
+    private BigDecimal supplierSum;
+    private BigDecimal quantity;
+
+    public OrderDetailsSummary(BigDecimal buyerSum, BigDecimal supplierSum, BigDecimal quantity) {
+        this.buyerSum = buyerSum != null ? buyerSum : BigDecimal.ZERO;
+        this.supplierSum = supplierSum != null ? supplierSum : BigDecimal.ZERO;
+        this.quantity = quantity != null ? quantity : BigDecimal.ZERO;
+    }
+
+}
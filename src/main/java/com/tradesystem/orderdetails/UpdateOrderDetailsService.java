@@ -3,6 +3,9 @@ package com.tradesystem.orderdetails;
 import com.tradesystem.buyer.Buyer;
 import com.tradesystem.invoice.Invoice;
 import com.tradesystem.invoice.InvoiceDao;
+import com.tradesystem.invoice.InvoiceLedger;
+import com.tradesystem.invoice.MerchantLockService;
+import com.tradesystem.invoice.MerchantLockService.MerchantLocks;
 import com.tradesystem.order.*;
 import com.tradesystem.ordercomment.OrderCommentService;
 import com.tradesystem.payment.Payment;
@@ -11,13 +14,17 @@ import com.tradesystem.price.PriceDao;
 import com.tradesystem.price.pricehistory.PriceHistoryDao;
 import com.tradesystem.product.Product;
 import com.tradesystem.product.ProductDto;
+import com.tradesystem.report.ReportLedgerService;
 import com.tradesystem.supplier.Supplier;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Service
@@ -32,10 +39,16 @@ public class UpdateOrderDetailsService {
     private OrderDetailsDao orderDetailsDao;
     private OrderCommentService orderCommentService;
     private PriceHistoryDao priceHistoryDao;
+    private ReportLedgerService reportLedgerService;
+    private InvoiceLedger invoiceLedger;
+    private MerchantLockService merchantLockService;
+    private TransactionTemplate transactionTemplate;
 
     public UpdateOrderDetailsService(OrderService orderService, PaymentDao paymentDao, OrderDetailsService orderDetailsService,
                                      InvoiceDao invoiceDao, OrderCommentService orderCommentService,
-                                     PriceDao priceDao, OrderDetailsDao orderDetailsDao, OrderDao orderDao, PriceHistoryDao priceHistoryDao) {
+                                     PriceDao priceDao, OrderDetailsDao orderDetailsDao, OrderDao orderDao, PriceHistoryDao priceHistoryDao,
+                                     ReportLedgerService reportLedgerService, InvoiceLedger invoiceLedger,
+                                     MerchantLockService merchantLockService, PlatformTransactionManager transactionManager) {
         this.orderService = orderService;
         this.paymentDao = paymentDao;
         this.orderDetailsService = orderDetailsService;
@@ -45,11 +58,33 @@ public class UpdateOrderDetailsService {
         this.orderDao = orderDao;
         this.orderDetailsDao = orderDetailsDao;
         this.priceHistoryDao = priceHistoryDao;
+        this.reportLedgerService = reportLedgerService;
+        this.invoiceLedger = invoiceLedger;
+        this.merchantLockService = merchantLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
 
-    @Transactional
+    /**
+     * Holds the locks of the order's merchants and of the new ones for the whole
+     * transaction, see MerchantLockService.
+     */
     public void updateOrder(UpdateOrderDetailsRequest updateOrderDetailsRequest) {
+        Order order = orderDetailsService.getOrderById(updateOrderDetailsRequest.getId()).getOrder();
+        List<Long> buyerIds = Arrays.asList(order.getBuyer().getId(),
+                updateOrderDetailsRequest.getNewBuyer() != null ? updateOrderDetailsRequest.getNewBuyer().getId() : null);
+        List<Long> supplierIds = Arrays.asList(order.getSupplier().getId(),
+                updateOrderDetailsRequest.getNewSupplier() != null ? updateOrderDetailsRequest.getNewSupplier().getId() : null);
+
+        try (MerchantLocks locks = merchantLockService.lock(withoutNulls(buyerIds), withoutNulls(supplierIds))) {
+            transactionTemplate.execute(status -> {
+                update(updateOrderDetailsRequest);
+                return null;
+            });
+        }
+    }
+
+    private void update(UpdateOrderDetailsRequest updateOrderDetailsRequest) {
         OrderDetails orderDetails = orderDetailsService.getOrderById(updateOrderDetailsRequest.getId());
         orderDetails.setTypedSoldPrice(BigDecimal.ZERO);
         orderDetails.setTypedBoughtPrice(BigDecimal.ZERO);
@@ -77,13 +112,31 @@ public class UpdateOrderDetailsService {
         if (checkIfMerchantIsChanged(updateOrderDetailsRequest, oldBuyer, oldSupplier)) {
             processNewOrder(updateOrderDetailsRequest, orderDetails);
         } else {
+            LocalDate date = orderDetails.getOrder().getDate();
+            reportLedgerService.subtractOrderDetails(date, orderDetails.getBuyerSum(),
+                    orderDetails.getSupplierSum(), orderDetails.getQuantity());
+
             updateBuyerOrder(updateOrderDetailsRequest, orderDetails);
             updateSupplierOrder(updateOrderDetailsRequest, orderDetails);
+
+            reportLedgerService.addOrderDetails(date, orderDetails.getBuyerSum(),
+                    orderDetails.getSupplierSum(), orderDetails.getQuantity());
+            reportLedgerService.refreshNotPaidInvoices(date);
         }
     }
 
-    @Transactional
     public void deleteOrder(Long id) {
+        Order order = orderService.getOrderById(id);
+
+        try (MerchantLocks locks = merchantLockService.lock(order.getBuyer().getId(), order.getSupplier().getId())) {
+            transactionTemplate.execute(status -> {
+                delete(id);
+                return null;
+            });
+        }
+    }
+
+    private void delete(Long id) {
         Order order = orderDao.findById(id)
                 .orElseThrow(RuntimeException::new);
 
@@ -147,6 +200,17 @@ public class UpdateOrderDetailsService {
 
         orderDetailsDao.delete(orderDetails);
         orderDao.delete(orderDetails.getOrder());
+        invoiceLedger.clear();
+
+        LocalDate date = orderDetails.getOrder().getDate();
+        reportLedgerService.subtractOrderDetails(date, orderDetails.getBuyerSum(),
+                orderDetails.getSupplierSum(), orderDetails.getQuantity());
+        reportLedgerService.refreshNotPaidInvoices(date);
+        for (Invoice invoice : buyerInvoices) {
+            if (!invoice.getDate().equals(date)) {
+                reportLedgerService.refreshNotPaidInvoices(invoice.getDate());
+            }
+        }
 
     }
 
@@ -262,7 +326,7 @@ public class UpdateOrderDetailsService {
     }
 
     private boolean checkIfValuesAreEqual(BigDecimal negativeInvoiceValue, BigDecimal orderDetailsValue) {
-        BigDecimal convertedInvoiceValue = negativeInvoiceValue.multiply(BigDecimal.valueOf(-1));
+        BigDecimal convertedInvoiceValue = negativeInvoiceValue.negate();
 
         return convertedInvoiceValue.compareTo(orderDetailsValue) == 0;
     }
@@ -418,4 +482,14 @@ public class UpdateOrderDetailsService {
         return merchantSum.divide(quantity, RoundingMode.HALF_EVEN);
     }
 
+    private List<Long> withoutNulls(List<Long> ids) {
+        List<Long> result = new ArrayList<>();
+        for (Long id : ids) {
+            if (id != null) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,53 @@
+package com.tradesystem.orderfact;
+
+import com.tradesystem.money.Money;
+import com.tradesystem.orderdetails.OrderDetails;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One order line as the fact store keeps it, amounts and quantity in hundredths.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderFact {
+
+    private final long orderDetailsId;
+    private final LocalDate date;
+    private final long buyerId;
+    private final long supplierId;
+    private final long productId;
+    private final long quantity;
+    private final long buyerSum;
+    private final long supplierSum;
+
+
+    public static OrderFact of(OrderDetails orderDetails) {
+        return new OrderFact(orderDetails.getId(),
+                orderDetails.getOrder().getDate(),
+                orderDetails.getOrder().getBuyer() != null ? orderDetails.getOrder().getBuyer().getId() : 0,
+                orderDetails.getOrder().getSupplier() != null ? orderDetails.getOrder().getSupplier().getId() : 0,
+                orderDetails.getProduct() != null ? orderDetails.getProduct().getId() : 0,
+                hundredths(orderDetails.getQuantity()),
+                hundredths(orderDetails.getBuyerSum()),
+                hundredths(orderDetails.getSupplierSum()));
+    }
+
+    public static OrderFact of(Object[] row) {
+        return new OrderFact((Long) row[0], (LocalDate) row[1],
+                row[2] != null ? (Long) row[2] : 0,
+                row[3] != null ? (Long) row[3] : 0,
+                row[4] != null ? (Long) row[4] : 0,
+                hundredths((BigDecimal) row[5]),
+                hundredths((BigDecimal) row[6]),
+                hundredths((BigDecimal) row[7]));
+    }
+
+    private static long hundredths(BigDecimal value) {
+        return Money.of(value).getMinorUnits();
+    }
+
+}
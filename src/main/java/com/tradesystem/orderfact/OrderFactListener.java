@@ -0,0 +1,34 @@
+package com.tradesystem.orderfact;
+
+import com.tradesystem.orderdetails.OrderDetails;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Passes order line writes to OrderFactStore, which applies them once the transaction commits.
+ */
+public class OrderFactListener {
+
+    private ObjectProvider<OrderFactStore> orderFactStore;
+
+
+    public OrderFactListener(ObjectProvider<OrderFactStore> orderFactStore) {
+        this.orderFactStore = orderFactStore;
+    }
+
+
+    @PostPersist
+    @PostUpdate
+    public void written(OrderDetails orderDetails) {
+        orderFactStore.getObject().written(orderDetails);
+    }
+
+    @PostRemove
+    public void removed(OrderDetails orderDetails) {
+        orderFactStore.getObject().removed(orderDetails);
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.tradesystem.orderfact;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order lines of one month stored column by column in primitive arrays, so a scan
+ * touches only the columns it needs. A partition never changes, applying a write
+ * builds a new one.
+ */
+public class OrderFactPartition {
+
+    private final int size;
+    private final long[] orderDetailsIds;
+    private final long[] buyerIds;
+    private final long[] supplierIds;
+    private final long[] productIds;
+    private final long[] quantities;
+    private final long[] buyerSums;
+    private final long[] supplierSums;
+
+
+    private OrderFactPartition(int capacity) {
+        this.size = capacity;
+        this.orderDetailsIds = new long[capacity];
+        this.buyerIds = new long[capacity];
+        this.supplierIds = new long[capacity];
+        this.productIds = new long[capacity];
+        this.quantities = new long[capacity];
+        this.buyerSums = new long[capacity];
+        this.supplierSums = new long[capacity];
+    }
+
+
+    public static OrderFactPartition of(List<OrderFact> facts) {
+        OrderFactPartition partition = new OrderFactPartition(facts.size());
+        for (int i = 0; i < facts.size(); i++) {
+            partition.set(i, facts.get(i));
+        }
+        return partition;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public OrderFactTotals getTotals() {
+        OrderFactTotals totals = new OrderFactTotals();
+        for (int i = 0; i < size; i++) {
+            totals.add(quantities[i], buyerSums[i], supplierSums[i]);
+        }
+        return totals;
+    }
+
+    public Map<Long, OrderFactTotals> getBuyerTotals() {
+        return groupTotals(buyerIds);
+    }
+
+    public Map<Long, OrderFactTotals> getSupplierTotals() {
+        return groupTotals(supplierIds);
+    }
+
+    /**
+     * Partition with the given lines added or, when already present, replaced and the
+     * removed ids left out.
+     */
+    OrderFactPartition apply(Map<Long, OrderFact> changedFacts, Iterable<Long> removedIds) {
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            positions.put(orderDetailsIds[i], i);
+        }
+        boolean[] dropped = new boolean[size];
+        int dropCount = 0;
+
+        for (Long removedId : removedIds) {
+            Integer position = positions.get(removedId);
+            if (position != null && !dropped[position]) {
+                dropped[position] = true;
+                dropCount++;
+            }
+        }
+        for (Long changedId : changedFacts.keySet()) {
+            Integer position = positions.get(changedId);
+            if (position != null && !dropped[position]) {
+                dropped[position] = true;
+                dropCount++;
+            }
+        }
+
+        OrderFactPartition partition = new OrderFactPartition(size - dropCount + changedFacts.size());
+        int target = 0;
+        for (int i = 0; i < size; i++) {
+            if (!dropped[i]) {
+                partition.copy(target++, this, i);
+            }
+        }
+        for (OrderFact fact : changedFacts.values()) {
+            partition.set(target++, fact);
+        }
+        return partition;
+    }
+
+    private Map<Long, OrderFactTotals> groupTotals(long[] keys) {
+        Map<Long, OrderFactTotals> totals = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            totals.computeIfAbsent(keys[i], key -> new OrderFactTotals())
+                    .add(quantities[i], buyerSums[i], supplierSums[i]);
+        }
+        return totals;
+    }
+
+    private void set(int i, OrderFact fact) {
+        orderDetailsIds[i] = fact.getOrderDetailsId();
+        buyerIds[i] = fact.getBuyerId();
+        supplierIds[i] = fact.getSupplierId();
+        productIds[i] = fact.getProductId();
+        quantities[i] = fact.getQuantity();
+        buyerSums[i] = fact.getBuyerSum();
+        supplierSums[i] = fact.getSupplierSum();
+    }
+
+    private void copy(int i, OrderFactPartition source, int j) {
+        orderDetailsIds[i] = source.orderDetailsIds[j];
+        buyerIds[i] = source.buyerIds[j];
+        supplierIds[i] = source.supplierIds[j];
+        productIds[i] = source.productIds[j];
+        quantities[i] = source.quantities[j];
+        buyerSums[i] = source.buyerSums[j];
+        supplierSums[i] = source.supplierSums[j];
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.tradesystem.orderfact;
+
+import com.tradesystem.orderdetails.OrderDetails;
+import com.tradesystem.orderdetails.OrderDetailsDao;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Committed order lines partitioned by month. A month is read from the database the
+ * first time it is asked for; after that every committed write of an order line is
+ * applied to its partition, so analytics scan memory instead of querying orders.
+ * Lines written in the current transaction only show up once it commits.
+ * <p>
+ * A month is read in its own transaction, so its snapshot is never older than the
+ * generation taken before the read, whatever the caller's transaction already read.
+ * The least recently used month is dropped when more than order.facts.maxMonths are kept.
+ */
+@Log4j2
+@Component
+public class OrderFactStore {
+
+    private OrderDetailsDao orderDetailsDao;
+    private TransactionTemplate loadTransactionTemplate;
+
+    private final Map<YearMonth, OrderFactPartition> partitions = new LinkedHashMap<YearMonth, OrderFactPartition>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<YearMonth, OrderFactPartition> eldest) {
+            return size() > maxMonths;
+        }
+    };
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${order.facts.maxMonths:36}")
+    private int maxMonths;
+
+    private Logger logger = LogManager.getLogger(OrderFactStore.class);
+
+
+    public OrderFactStore(OrderDetailsDao orderDetailsDao, PlatformTransactionManager transactionManager) {
+        this.orderDetailsDao = orderDetailsDao;
+        this.loadTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.loadTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTransactionTemplate.setReadOnly(true);
+    }
+
+
+    public OrderFactPartition getMonth(int month, int year) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        OrderFactPartition partition = getCached(yearMonth);
+        if (partition != null) {
+            return partition;
+        }
+
+        long readGeneration = generation.get();
+        partition = loadTransactionTemplate.execute(status -> load(month, year));
+
+        put(yearMonth, partition, readGeneration);
+        return partition;
+    }
+
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        partitions.clear();
+    }
+
+    void written(OrderDetails orderDetails) {
+        if (orderDetails.getId() == null || orderDetails.getOrder() == null || orderDetails.getOrder().getDate() == null) {
+            return;
+        }
+        OrderFact fact = OrderFact.of(orderDetails);
+        PendingWrites pendingWrites = getPendingWrites();
+
+        if (pendingWrites == null) {
+            apply(YearMonth.from(fact.getDate()), single(fact), new HashSet<>());
+            return;
+        }
+        pendingWrites.removed.remove(fact.getOrderDetailsId());
+        pendingWrites.month(fact).put(fact.getOrderDetailsId(), fact);
+    }
+
+    void removed(OrderDetails orderDetails) {
+        if (orderDetails.getId() == null || orderDetails.getOrder() == null || orderDetails.getOrder().getDate() == null) {
+            return;
+        }
+        YearMonth yearMonth = YearMonth.from(orderDetails.getOrder().getDate());
+        PendingWrites pendingWrites = getPendingWrites();
+
+        if (pendingWrites == null) {
+            Set<Long> removedIds = new HashSet<>();
+            removedIds.add(orderDetails.getId());
+            apply(yearMonth, new HashMap<>(), removedIds);
+            return;
+        }
+        pendingWrites.changed.computeIfAbsent(yearMonth, key -> new LinkedHashMap<>()).remove(orderDetails.getId());
+        pendingWrites.removed.put(orderDetails.getId(), yearMonth);
+    }
+
+    private OrderFactPartition load(int month, int year) {
+        List<OrderFact> facts = new ArrayList<>();
+        for (Object[] row : orderDetailsDao.getMonthFacts(month, year)) {
+            facts.add(OrderFact.of(row));
+        }
+        return OrderFactPartition.of(facts);
+    }
+
+    private synchronized OrderFactPartition getCached(YearMonth yearMonth) {
+        return partitions.get(yearMonth);
+    }
+
+    private synchronized void put(YearMonth yearMonth, OrderFactPartition partition, long readGeneration) {
+        // a write committed while the month was read may be missing from it, so it is read again next time
+        if (generation.get() == readGeneration) {
+            partitions.put(yearMonth, partition);
+            logger.debug("Wczytano zamówienia z " + yearMonth + ", pozycji: " + partition.size());
+        }
+    }
+
+    private synchronized void apply(YearMonth yearMonth, Map<Long, OrderFact> changedFacts, Set<Long> removedIds) {
+        generation.incrementAndGet();
+        OrderFactPartition partition = partitions.get(yearMonth);
+
+        if (partition != null) {
+            partitions.put(yearMonth, partition.apply(changedFacts, removedIds));
+        }
+    }
+
+    private Map<Long, OrderFact> single(OrderFact fact) {
+        Map<Long, OrderFact> facts = new HashMap<>();
+        facts.put(fact.getOrderDetailsId(), fact);
+        return facts;
+    }
+
+    private PendingWrites getPendingWrites() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        PendingWrites pendingWrites = (PendingWrites) TransactionSynchronizationManager.getResource(this);
+        if (pendingWrites != null) {
+            return pendingWrites;
+        }
+
+        PendingWrites writes = new PendingWrites();
+        TransactionSynchronizationManager.bindResource(this, writes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                Set<YearMonth> months = new HashSet<>(writes.changed.keySet());
+                months.addAll(writes.removed.values());
+
+                for (YearMonth yearMonth : months) {
+                    Set<Long> removedIds = new HashSet<>();
+                    for (Map.Entry<Long, YearMonth> entry : writes.removed.entrySet()) {
+                        if (entry.getValue().equals(yearMonth)) {
+                            removedIds.add(entry.getKey());
+                        }
+                    }
+                    apply(yearMonth, writes.changed.getOrDefault(yearMonth, new HashMap<>()), removedIds);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OrderFactStore.this);
+            }
+        });
+        return writes;
+    }
+
+    private static class PendingWrites {
+
+        private final Map<YearMonth, Map<Long, OrderFact>> changed = new HashMap<>();
+        private final Map<Long, YearMonth> removed = new HashMap<>();
+
+        private Map<Long, OrderFact> month(OrderFact fact) {
+            return changed.computeIfAbsent(YearMonth.from(fact.getDate()), key -> new LinkedHashMap<>());
+        }
+    }
+
+}
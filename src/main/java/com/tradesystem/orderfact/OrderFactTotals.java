@@ -0,0 +1,35 @@
+package com.tradesystem.orderfact;
+
+import com.tradesystem.money.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Running sums of a scan over order facts.
+ */
+public class OrderFactTotals {
+
+    private long quantity;
+    private long buyerSum;
+    private long supplierSum;
+
+
+    void add(long quantity, long buyerSum, long supplierSum) {
+        this.quantity += quantity;
+        this.buyerSum += buyerSum;
+        this.supplierSum += supplierSum;
+    }
+
+    public BigDecimal getQuantity() {
+        return Money.ofMinorUnits(quantity).toBigDecimal();
+    }
+
+    public BigDecimal getBuyerSum() {
+        return Money.ofMinorUnits(buyerSum).toBigDecimal();
+    }
+
+    public BigDecimal getSupplierSum() {
+        return Money.ofMinorUnits(supplierSum).toBigDecimal();
+    }
+
+}
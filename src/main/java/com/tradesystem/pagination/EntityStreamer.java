@@ -0,0 +1,47 @@
+package com.tradesystem.pagination;
+
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Walks a query result stream inside the caller's transaction and clears the
+ * persistence context every CLEAR_INTERVAL rows, so streaming a whole table
+ * keeps only one batch of entities in memory. The streamed queries set FETCH_SIZE,
+ * which MySQL only honours with useCursorFetch, see StreamingConfiguration.
+ */
+@Component
+public class EntityStreamer {
+
+    public static final int FETCH_SIZE = 500;
+
+    private static final int CLEAR_INTERVAL = FETCH_SIZE;
+
+    private EntityManager entityManager;
+
+
+    public EntityStreamer(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+
+    public <T> int forEach(Stream<T> stream, Consumer<T> action) {
+        int count = 0;
+
+        try (Stream<T> rows = stream) {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+
+                if (++count % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.tradesystem.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a listing sorted by id. nextCursor points past the last item
+ * and is null on the last page.
+ * <p>
+ * Ids are unique and never change, so walking the pages neither repeats nor skips a row
+ * that existed when the walk started. They come from pooled generator blocks, though,
+ * not in insertion order: a row inserted during a walk may get an id behind the cursor
+ * and only show up in the next walk.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+
+
+    /**
+     * Builds a page from up to size + 1 rows read after the cursor, the extra row
+     * only tells that there is a next page.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, Function<T, Long> idGetter) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        Long lastId = idGetter.apply(items.get(size - 1));
+
+        return new KeysetPage<>(items, KeysetCursor.encode(lastId));
+    }
+
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        List<R> mappedItems = items.stream()
+                .map(mapper)
+                .collect(Collectors.toList());
+
+        return new KeysetPage<>(mappedItems, nextCursor);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.tradesystem.pagination;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes one JSON object per line straight to the response, flushing every
+ * few lines so the client gets rows while the rest are still read.
+ */
+public class NdjsonWriter {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final ObjectMapper objectMapper;
+    private final OutputStream outputStream;
+    private int lines;
+
+
+    public NdjsonWriter(ObjectMapper objectMapper, HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        this.objectMapper = objectMapper;
+        this.outputStream = response.getOutputStream();
+    }
+
+
+    public void write(Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+
+            if (++lines % FLUSH_INTERVAL == 0) {
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+
+}
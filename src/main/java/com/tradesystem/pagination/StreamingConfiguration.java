@@ -0,0 +1,39 @@
+package com.tradesystem.pagination;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets the streamed queries read EntityStreamer.FETCH_SIZE rows at a time on MySQL.
+ * Connector/J ignores the fetch size and buffers the whole result set unless the
+ * connection uses server side cursors, so useCursorFetch is turned on for MySQL
+ * pools where it is not configured explicitly.
+ */
+@Configuration
+public class StreamingConfiguration {
+
+    private static final String USE_CURSOR_FETCH = "useCursorFetch";
+
+
+    @Bean
+    public static BeanPostProcessor cursorFetchPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    String jdbcUrl = dataSource.getJdbcUrl();
+
+                    if (jdbcUrl != null && jdbcUrl.startsWith("jdbc:mysql:") && !jdbcUrl.contains(USE_CURSOR_FETCH)
+                            && !dataSource.getDataSourceProperties().containsKey(USE_CURSOR_FETCH)) {
+                        dataSource.addDataSourceProperty(USE_CURSOR_FETCH, "true");
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+}
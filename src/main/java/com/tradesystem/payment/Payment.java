@@ -2,6 +2,7 @@ package com.tradesystem.payment;
 
 import com.tradesystem.invoice.Invoice;
 import com.tradesystem.orderdetails.OrderDetails;
+import com.tradesystem.persistence.IdGenerators;
 import lombok.*;
 
 import javax.persistence.*;
@@ -16,7 +17,10 @@ import javax.persistence.*;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.PAYMENTS)
+    @TableGenerator(name = IdGenerators.PAYMENTS, table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.PAYMENTS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "payment_id")
     private Long id;
 
@@ -0,0 +1,37 @@
+package com.tradesystem.period;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Half-open date range [start, end). Period queries compare the raw date column
+ * against both ends, so an index on the date can be used, which MONTH()/YEAR() prevent.
+ */
+@Getter
+public class DatePeriod {
+
+    private final LocalDate start;
+    private final LocalDate end;
+
+
+    private DatePeriod(LocalDate start, LocalDate end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public static DatePeriod ofMonth(int month, int year) {
+        return ofMonth(YearMonth.of(year, month));
+    }
+
+    public static DatePeriod ofMonth(YearMonth yearMonth) {
+        return new DatePeriod(yearMonth.atDay(1), yearMonth.plusMonths(1).atDay(1));
+    }
+
+    public static DatePeriod ofYear(int year) {
+        LocalDate start = LocalDate.of(year, 1, 1);
+        return new DatePeriod(start, start.plusYears(1));
+    }
+
+}
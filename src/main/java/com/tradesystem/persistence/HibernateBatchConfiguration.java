@@ -0,0 +1,27 @@
+package com.tradesystem.persistence;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Turns on JDBC batching, so the rows written by one flush go to the database
+ * in a few batched statements instead of one round trip per row.
+ */
+@Configuration
+public class HibernateBatchConfiguration implements HibernatePropertiesCustomizer {
+
+    public static final int BATCH_SIZE = IdGenerators.ALLOCATION_SIZE;
+
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(BATCH_SIZE));
+        hibernateProperties.putIfAbsent(AvailableSettings.ORDER_INSERTS, "true");
+        hibernateProperties.putIfAbsent(AvailableSettings.ORDER_UPDATES, "true");
+        hibernateProperties.putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, "true");
+    }
+
+}
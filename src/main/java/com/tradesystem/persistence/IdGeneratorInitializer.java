@@ -0,0 +1,79 @@
+package com.tradesystem.persistence;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates the id generator table when the schema is not managed by Hibernate and moves
+ * every id generator past the highest id already in its table, so a database filled
+ * while the ids were IDENTITY columns, or by SQL scripts, gets no duplicate keys.
+ */
+@Log4j2
+@Component
+public class IdGeneratorInitializer {
+
+    private static final Map<String, String> ID_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        ID_COLUMNS.put(IdGenerators.INVOICES, "invoice_id");
+        ID_COLUMNS.put(IdGenerators.PAYMENTS, "payment_id");
+        ID_COLUMNS.put(IdGenerators.ORDERS, "order_id");
+        ID_COLUMNS.put(IdGenerators.ORDER_DETAILS, "order_details_id");
+        ID_COLUMNS.put(IdGenerators.ORDER_COMMENTS, "order_comment_id");
+        ID_COLUMNS.put(IdGenerators.PRICES_HISTORY, "price_history_id");
+        ID_COLUMNS.put(IdGenerators.REPORTS, "report_id");
+        ID_COLUMNS.put(IdGenerators.COSTS, "cost_id");
+    }
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Logger logger = LogManager.getLogger(IdGeneratorInitializer.class);
+
+
+    public IdGeneratorInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void initialize() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + IdGenerators.TABLE + " ("
+                + IdGenerators.NAME_COLUMN + " VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + IdGenerators.VALUE_COLUMN + " BIGINT)");
+
+        for (Map.Entry<String, String> entry : ID_COLUMNS.entrySet()) {
+            String name = entry.getKey();
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(" + entry.getValue() + "), 0) FROM " + name, Long.class);
+
+            // the pooled optimizer hands out the ALLOCATION_SIZE ids below the stored value
+            long nextValue = maxId + IdGenerators.ALLOCATION_SIZE + 1;
+
+            int updated = jdbcTemplate.update("UPDATE " + IdGenerators.TABLE
+                            + " SET " + IdGenerators.VALUE_COLUMN + " = ?"
+                            + " WHERE " + IdGenerators.NAME_COLUMN + " = ? AND " + IdGenerators.VALUE_COLUMN + " < ?",
+                    nextValue, name, nextValue);
+            if (updated > 0) {
+                logger.info("Przesunięto generator id " + name + " na " + nextValue);
+                continue;
+            }
+
+            Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + IdGenerators.TABLE
+                    + " WHERE " + IdGenerators.NAME_COLUMN + " = ?", Integer.class, name);
+            if (rows == 0) {
+                jdbcTemplate.update("INSERT INTO " + IdGenerators.TABLE
+                        + " (" + IdGenerators.NAME_COLUMN + ", " + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)",
+                        name, nextValue);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.tradesystem.persistence;
+
+/**
+ * Settings of the pooled table id generators. Every entity with a high insert rate
+ * takes ids from its own row of id_generators, ALLOCATION_SIZE at a time, which,
+ * unlike IDENTITY columns, lets Hibernate batch the inserts.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String NAME_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    public static final String INVOICES = "invoices";
+    public static final String PAYMENTS = "payments";
+    public static final String ORDERS = "orders";
+    public static final String ORDER_DETAILS = "order_details";
+    public static final String ORDER_COMMENTS = "order_comments";
+    public static final String PRICES_HISTORY = "prices_history";
+    public static final String REPORTS = "reports";
+    public static final String COSTS = "costs";
+
+
+    private IdGenerators() {
+    }
+
+}
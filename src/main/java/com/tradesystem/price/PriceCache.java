@@ -0,0 +1,186 @@
+package com.tradesystem.price;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the list prices used to calculate orders. A price is keyed
+ * by merchant type, merchant id and product id packed into one long. Every price
+ * write in PriceService evicts its key, right away and again after commit.
+ */
+@Log4j2
+@Component
+public class PriceCache {
+
+    private static final long BUYER = 1L;
+    private static final long SUPPLIER = 2L;
+    private static final long MAX_ID = (1L << 30) - 1;
+
+    // marks a merchant that has no price for the product, so that is not asked again
+    private static final BigDecimal NO_PRICE = new BigDecimal("-1");
+
+    private PriceDao priceDao;
+
+    private final Map<Long, BigDecimal> prices = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private Logger logger = LogManager.getLogger(PriceCache.class);
+
+
+    public PriceCache(PriceDao priceDao) {
+        this.priceDao = priceDao;
+    }
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        long readGeneration = generation.get();
+        List<Object[]> rows = priceDao.getAllPrices();
+
+        if (generation.get() != readGeneration) {
+            return;
+        }
+        for (Object[] row : rows) {
+            Long buyerId = (Long) row[0];
+            Long supplierId = (Long) row[1];
+            Long productId = (Long) row[2];
+            BigDecimal price = (BigDecimal) row[3];
+
+            if (buyerId != null && fits(buyerId, productId)) {
+                prices.put(key(BUYER, buyerId, productId), price);
+            }
+            if (supplierId != null && fits(supplierId, productId)) {
+                prices.put(key(SUPPLIER, supplierId, productId), price);
+            }
+        }
+        logger.info("Wczytano cennik do pamięci, liczba cen: " + prices.size());
+    }
+
+    /**
+     * Reads the list prices of many buyers with one query, e.g. before a batch import.
+     */
+    public void loadBuyersPrices(Collection<Long> buyerIds) {
+        long readGeneration = generation.get();
+        for (Object[] row : priceDao.getBuyersPrices(buyerIds)) {
+            if (fits((Long) row[0], (Long) row[1])) {
+                put(key(BUYER, (Long) row[0], (Long) row[1]), (BigDecimal) row[2], readGeneration);
+            }
+        }
+    }
+
+    /**
+     * Reads the list prices of many suppliers with one query, e.g. before a batch import.
+     */
+    public void loadSuppliersPrices(Collection<Long> supplierIds) {
+        long readGeneration = generation.get();
+        for (Object[] row : priceDao.getSuppliersPrices(supplierIds)) {
+            if (fits((Long) row[0], (Long) row[1])) {
+                put(key(SUPPLIER, (Long) row[0], (Long) row[1]), (BigDecimal) row[2], readGeneration);
+            }
+        }
+    }
+
+    public BigDecimal getBuyerPrice(Long buyerId, Long productId) {
+        if (!fits(buyerId, productId)) {
+            return priceDao.getBuyerPrice(buyerId, productId);
+        }
+        long key = key(BUYER, buyerId, productId);
+        BigDecimal price = prices.get(key);
+
+        if (price == null) {
+            long readGeneration = generation.get();
+            price = priceDao.getBuyerPrice(buyerId, productId);
+            put(key, price, readGeneration);
+            misses.incrementAndGet();
+            return price;
+        }
+        hits.incrementAndGet();
+        return price == NO_PRICE ? null : price;
+    }
+
+    public BigDecimal getSupplierPrice(Long supplierId, Long productId) {
+        if (!fits(supplierId, productId)) {
+            return priceDao.getSupplierPrice(supplierId, productId);
+        }
+        long key = key(SUPPLIER, supplierId, productId);
+        BigDecimal price = prices.get(key);
+
+        if (price == null) {
+            long readGeneration = generation.get();
+            price = priceDao.getSupplierPrice(supplierId, productId);
+            put(key, price, readGeneration);
+            misses.incrementAndGet();
+            return price;
+        }
+        hits.incrementAndGet();
+        return price == NO_PRICE ? null : price;
+    }
+
+    public void evictBuyerPrice(Long buyerId, Long productId) {
+        if (fits(buyerId, productId)) {
+            evict(key(BUYER, buyerId, productId));
+        }
+    }
+
+    public void evictSupplierPrice(Long supplierId, Long productId) {
+        if (fits(supplierId, productId)) {
+            evict(key(SUPPLIER, supplierId, productId));
+        }
+    }
+
+    public PriceCacheStats getStats() {
+        return PriceCacheStats.builder()
+                .hits(hits.get())
+                .misses(misses.get())
+                .size(prices.size())
+                .build();
+    }
+
+    private void put(long key, BigDecimal price, long readGeneration) {
+        // a price written while this one was read may already be committed, so drop the stale value
+        if (generation.get() == readGeneration) {
+            prices.put(key, price != null ? price : NO_PRICE);
+        }
+    }
+
+    private void evict(long key) {
+        generation.incrementAndGet();
+        prices.remove(key);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                    prices.remove(key);
+                }
+            });
+        }
+    }
+
+    private boolean fits(Long merchantId, Long productId) {
+        return merchantId != null && productId != null
+                && merchantId >= 0 && merchantId <= MAX_ID
+                && productId >= 0 && productId <= MAX_ID;
+    }
+
+    private long key(long merchantType, long merchantId, long productId) {
+        return (merchantType << 60) | (merchantId << 30) | productId;
+    }
+
+}
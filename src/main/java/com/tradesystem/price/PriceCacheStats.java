@@ -0,0 +1,18 @@
+package com.tradesystem.price;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceCacheStats {
+
+    private long hits;
+    private long misses;
+    private int size;
+
+}
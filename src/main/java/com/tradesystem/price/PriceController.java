@@ -1,19 +1,24 @@
 package com.tradesystem.price;
 
+import com.tradesystem.price.pricehistory.PriceHistory;
+import com.tradesystem.price.pricehistory.PriceHistoryDto;
+import com.tradesystem.price.pricehistory.PriceHistoryMapper;
 import com.tradesystem.price.pricehistory.PriceHistoryService;
-import com.tradesystem.user.RoleSecurity;
+import com.tradesystem.security.AdminRole;
+import com.tradesystem.security.UserRole;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @Log4j2
 @RestController
+@UserRole
 @RequestMapping("/price")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class PriceController {
@@ -21,28 +26,27 @@ public class PriceController {
     private PriceService priceService;
     private PriceMapper priceMapper;
     private PriceDao priceDao;
+    private PriceCache priceCache;
     private PriceHistoryService priceHistoryService;
-    private RoleSecurity roleSecurity;
+    private PriceHistoryMapper priceHistoryMapper;
 
     private Logger logger = LogManager.getLogger(PriceController.class);
 
 
-    public PriceController(PriceService priceService, PriceMapper priceMapper, PriceDao priceDao,
-                           PriceHistoryService priceHistoryService, RoleSecurity roleSecurity) {
+    public PriceController(PriceService priceService, PriceMapper priceMapper, PriceDao priceDao, PriceCache priceCache,
+                           PriceHistoryService priceHistoryService, PriceHistoryMapper priceHistoryMapper) {
         this.priceService = priceService;
         this.priceMapper = priceMapper;
         this.priceDao = priceDao;
+        this.priceCache = priceCache;
         this.priceHistoryService = priceHistoryService;
-        this.roleSecurity = roleSecurity;
+        this.priceHistoryMapper = priceHistoryMapper;
     }
 
     @PostMapping("/createBuyerPrice")
     public PriceDto createBuyerPrice(@RequestBody PriceDto priceDto) {
         logger.info("Dodawanie ceny dla kupca: " + priceDto);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         final Price price = priceService.createBuyerPrice(priceDto);
 
         return priceMapper.toDto(price);
@@ -52,9 +56,6 @@ public class PriceController {
     public PriceDto createSupplierPrice(@RequestBody PriceDto priceDto) {
         logger.info("Dodawanie ceny dla sprzedawcy: " + priceDto);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         final Price price = priceService.createSupplierPrice(priceDto);
 
         return priceMapper.toDto(price);
@@ -67,9 +68,6 @@ public class PriceController {
 
         logger.info("Edytowanie ceny dla kupca. buyer_id=" + buyerId + " product_id=" + productId + " wartość=" + value);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         BigDecimal newValue = new BigDecimal(value);
         priceService.editBuyerPrice(Long.valueOf(buyerId), Long.valueOf(productId), newValue);
     }
@@ -81,9 +79,6 @@ public class PriceController {
 
         logger.info("Edytowanie ceny dla sprzedawcy. supplier_id=" + supplierId + " product_id=" + productId + " wartość=" + value);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         BigDecimal newValue = new BigDecimal(value);
         priceService.editSupplierPrice(Long.valueOf(supplierId), Long.valueOf(productId), newValue);
     }
@@ -95,10 +90,29 @@ public class PriceController {
         return priceMapper.toDto(pricesHistory);
     }
 
+    @GetMapping("/getBuyerPriceHistoryByDate")
+    public List<PriceHistoryDto> getBuyerPriceHistoryByDate(@RequestParam(value = "buyerId") Long buyerId,
+                                                            @RequestParam(value = "from")
+                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(value = "to")
+                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            @RequestParam(value = "page", defaultValue = "0") int page,
+                                                            @RequestParam(value = "size", defaultValue = "50") int size) {
+        List<PriceHistory> pricesHistory = priceHistoryService.getBuyerPriceHistory(buyerId, from, to, page, size);
+
+        return priceHistoryMapper.toDto(pricesHistory);
+    }
+
     @GetMapping("/getSupplierPrice")
     public BigDecimal getSupplierPrice(@RequestParam(value = "supplierId") String supplierId,
                                     @RequestParam(value = "productId") String productId) {
 
         return priceDao.getSupplierPrice(Long.valueOf(supplierId), Long.valueOf(productId));
     }
+
+    @AdminRole
+    @GetMapping("/cacheStats")
+    public PriceCacheStats getCacheStats() {
+        return priceCache.getStats();
+    }
 }
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository("priceDao")
@@ -28,6 +29,27 @@ public interface PriceDao extends JpaRepository<Price, Long> {
     BigDecimal getSupplierPrice(@Param("supplierId") Long supplierId,
                              @Param("id") Long productId);
 
+    /**
+     * Rows of (buyer id, product id, price) for all the given buyers.
+     */
+    @Query(value = "SELECT p.buyer.id, p.product.id, p.price FROM Price p " +
+            "WHERE p.buyer.id IN ?1")
+    List<Object[]> getBuyersPrices(Collection<Long> buyerIds);
+
+    /**
+     * Rows of (supplier id, product id, price) for all the given suppliers.
+     */
+    @Query(value = "SELECT p.supplier.id, p.product.id, p.price FROM Price p " +
+            "WHERE p.supplier.id IN ?1")
+    List<Object[]> getSuppliersPrices(Collection<Long> supplierIds);
+
+    /**
+     * Rows of (buyer id, supplier id, product id, price) of the whole price list.
+     */
+    @Query(value = "SELECT b.id, s.id, p.product.id, p.price FROM Price p " +
+            "LEFT JOIN p.buyer b LEFT JOIN p.supplier s")
+    List<Object[]> getAllPrices();
+
 
     @Query(value = "SELECT * FROM prices " +
             "WHERE buyer_fk = ?1",
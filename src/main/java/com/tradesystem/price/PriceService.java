@@ -17,11 +17,13 @@ public class PriceService {
 
     private PriceDao priceDao;
     private ProductDao productDao;
+    private PriceCache priceCache;
 
 
-    public PriceService(PriceDao priceDao, ProductDao productDao) {
+    public PriceService(PriceDao priceDao, ProductDao productDao, PriceCache priceCache) {
         this.priceDao = priceDao;
         this.productDao = productDao;
+        this.priceCache = priceCache;
     }
 
 
@@ -51,6 +53,7 @@ public class PriceService {
                     .buyer(buyer)
                     .build();
         }
+        priceCache.evictBuyerPrice(buyerDto.getId(), priceDto.getProduct().getId());
         return priceDao.save(price);
     }
 
@@ -75,16 +78,19 @@ public class PriceService {
                     .supplier(supplier)
                     .build();
         }
+        priceCache.evictSupplierPrice(supplierDto.getId(), priceDto.getProduct().getId());
         return priceDao.save(price);
     }
 
     @Transactional
     public void editBuyerPrice(Long buyerId, Long productId, BigDecimal newValue) {
+        priceCache.evictBuyerPrice(buyerId, productId);
         priceDao.updateBuyerPrice(buyerId, productId, newValue);
     }
 
     @Transactional
     public void editSupplierPrice(Long supplierId, Long productId, BigDecimal newValue) {
+        priceCache.evictSupplierPrice(supplierId, productId);
         priceDao.updateSupplierPrice(supplierId, productId, newValue);
     }
 
@@ -1,12 +1,14 @@
 package com.tradesystem.price.pricehistory;
 
 import com.tradesystem.buyer.Buyer;
+import com.tradesystem.persistence.IdGenerators;
 import com.tradesystem.product.Product;
 import com.tradesystem.supplier.Supplier;
 import lombok.*;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Entity
 @Getter
@@ -14,11 +16,16 @@ import java.math.BigDecimal;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "prices_history")
+@Table(name = "prices_history",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"buyer_fk", "supplier_fk", "product_fk", "price"}),
+        indexes = @Index(columnList = "buyer_fk, date"))
 public class PriceHistory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.PRICES_HISTORY)
+    @TableGenerator(name = IdGenerators.PRICES_HISTORY, table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.PRICES_HISTORY, allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "price_history_id")
     private Long id;
 
@@ -36,4 +43,6 @@ public class PriceHistory {
 
     private BigDecimal price;
 
+    private LocalDate date;
+
 }
@@ -1,8 +1,12 @@
 package com.tradesystem.price.pricehistory;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
@@ -10,4 +14,9 @@ public interface PriceHistoryDao  extends JpaRepository<PriceHistory, Long> {
 
     List<PriceHistory> findByBuyerId(Long buyerId);
 
+    boolean existsByBuyerIdAndSupplierIdAndProductIdAndPrice(Long buyerId, Long supplierId, Long productId,
+                                                             BigDecimal price);
+
+    Page<PriceHistory> findByBuyerIdAndDateBetween(Long buyerId, LocalDate from, LocalDate to, Pageable pageable);
+
 }
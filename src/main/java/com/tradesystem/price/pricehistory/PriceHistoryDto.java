@@ -0,0 +1,26 @@
+package com.tradesystem.price.pricehistory;
+
+import com.tradesystem.buyer.BuyerDto;
+import com.tradesystem.product.ProductDto;
+import com.tradesystem.supplier.SupplierDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceHistoryDto {
+
+    private BigDecimal price;
+    private LocalDate date;
+    private ProductDto product;
+    private BuyerDto buyer;
+    private SupplierDto supplier;
+
+}
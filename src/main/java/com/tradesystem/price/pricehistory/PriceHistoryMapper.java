@@ -0,0 +1,42 @@
+package com.tradesystem.price.pricehistory;
+
+import com.tradesystem.buyer.BuyerMapper;
+import com.tradesystem.product.ProductMapper;
+import com.tradesystem.supplier.SupplierMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class PriceHistoryMapper {
+
+    private BuyerMapper buyerMapper;
+    private SupplierMapper supplierMapper;
+    private ProductMapper productMapper;
+
+
+    public PriceHistoryMapper(BuyerMapper buyerMapper, SupplierMapper supplierMapper, ProductMapper productMapper) {
+        this.buyerMapper = buyerMapper;
+        this.supplierMapper = supplierMapper;
+        this.productMapper = productMapper;
+    }
+
+
+    public PriceHistoryDto toDto(PriceHistory priceHistory) {
+        return PriceHistoryDto.builder()
+                .price(priceHistory.getPrice())
+                .date(priceHistory.getDate())
+                .product(productMapper.toDto(priceHistory.getProduct()))
+                .buyer(buyerMapper.toDto(priceHistory.getBuyer()))
+                .supplier(supplierMapper.toDto(priceHistory.getSupplier()))
+                .build();
+    }
+
+    public List<PriceHistoryDto> toDto(List<PriceHistory> pricesHistory) {
+        return pricesHistory.stream()
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -4,52 +4,108 @@ import com.tradesystem.buyer.Buyer;
 import com.tradesystem.price.Price;
 import com.tradesystem.product.Product;
 import com.tradesystem.supplier.Supplier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class PriceHistoryService {
 
     private PriceHistoryDao priceHistoryDao;
 
+    // (supplier, product, price) tuples per buyer that are known to be in the history already
+    private final Map<Long, Set<String>> knownPrices = new ConcurrentHashMap<>();
+
     public PriceHistoryService(PriceHistoryDao priceHistoryDao) {
         this.priceHistoryDao = priceHistoryDao;
     }
 
     @Transactional
-    public PriceHistory createPriceHistory(Buyer buyer, Supplier supplier, Product product, BigDecimal price) {
+    public PriceHistory createPriceHistory(Buyer buyer, Supplier supplier, Product product, BigDecimal price,
+                                           LocalDate date) {
         PriceHistory priceHistory = PriceHistory.builder()
                 .buyer(buyer)
                 .supplier(supplier)
                 .product(product)
                 .price(price)
+                .date(date)
                 .build();
 
         if (validatePriceHistory(priceHistory)) {
-            return priceHistoryDao.save(priceHistory);
+            PriceHistory savedPriceHistory = priceHistoryDao.save(priceHistory);
+            rememberAfterCommit(priceHistory);
+            return savedPriceHistory;
         }
         return null;
     }
 
+    @Transactional
+    public List<PriceHistory> getBuyerPriceHistory(Long buyerId, LocalDate from, LocalDate to, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("date", "id"));
+
+        return priceHistoryDao.findByBuyerIdAndDateBetween(buyerId, from, to, pageRequest).getContent();
+    }
+
     @Transactional
     public List<Price> getBuyerPriceHistory(Long buyerId) {
         List<PriceHistory> pricesHistory = priceHistoryDao.findByBuyerId(buyerId);
         return changeTypeToPrice(pricesHistory);
     }
 
+    /**
+     * Known tuples are answered from memory, anything else costs one probe of the unique index.
+     */
     private boolean validatePriceHistory(PriceHistory priceHistory) {
-        List<PriceHistory> priceHistories = priceHistoryDao.findByBuyerId(priceHistory.getBuyer().getId());
+        Long buyerId = priceHistory.getBuyer().getId();
+        String key = key(priceHistory);
 
-        for (PriceHistory priceHistoryDB : priceHistories) {
-            if (priceHistory.getSupplier().equals(priceHistoryDB.getSupplier()) && priceHistory.getPrice().equals(priceHistoryDB.getPrice())) {
-                return false;
-            }
+        Set<String> buyerPrices = knownPrices.get(buyerId);
+        if (buyerPrices != null && buyerPrices.contains(key)) {
+            return false;
+        }
+
+        boolean exists = priceHistoryDao.existsByBuyerIdAndSupplierIdAndProductIdAndPrice(buyerId,
+                priceHistory.getSupplier().getId(), priceHistory.getProduct().getId(), priceHistory.getPrice());
+        if (exists) {
+            remember(buyerId, key);
         }
-        return true;
+        return !exists;
+    }
+
+    private void rememberAfterCommit(PriceHistory priceHistory) {
+        Long buyerId = priceHistory.getBuyer().getId();
+        String key = key(priceHistory);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(buyerId, key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                remember(buyerId, key);
+            }
+        });
+    }
+
+    private void remember(Long buyerId, String key) {
+        knownPrices.computeIfAbsent(buyerId, id -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private String key(PriceHistory priceHistory) {
+        return priceHistory.getSupplier().getId() + ":" + priceHistory.getProduct().getId() + ":"
+                + priceHistory.getPrice().stripTrailingZeros().toPlainString();
     }
 
     private List<Price> changeTypeToPrice(List<PriceHistory> pricesHistory) {
@@ -1,32 +1,29 @@
 package com.tradesystem.product;
 
-import com.tradesystem.user.RoleSecurity;
+import com.tradesystem.security.UserRole;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
 @Log4j2
 @RestController
+@UserRole
 @RequestMapping("/product")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class ProductController {
 
     private ProductService productService;
     private ProductMapper productMapper;
-    private RoleSecurity roleSecurity;
 
     private Logger logger = LogManager.getLogger(ProductController.class);
 
 
-    public ProductController(ProductService productService, ProductMapper productMapper, RoleSecurity roleSecurity) {
+    public ProductController(ProductService productService, ProductMapper productMapper) {
         this.productService = productService;
         this.productMapper = productMapper;
-        this.roleSecurity = roleSecurity;
     }
 
 
@@ -34,9 +31,6 @@ public class ProductController {
     public ProductDto create(@RequestBody ProductDto productDto) {
         logger.info("Dodawanie produktu: " + productDto);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         final Product product = productService.createProduct(productDto);
 
         return productMapper.toDto(product);
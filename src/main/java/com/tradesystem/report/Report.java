@@ -1,5 +1,6 @@
 package com.tradesystem.report;
 
+import com.tradesystem.persistence.IdGenerators;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,17 +8,22 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 @Entity
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "reports")
+@Table(name = "reports",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"period_type", "period_year", "period_month"}))
 public class Report {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.REPORTS)
+    @TableGenerator(name = IdGenerators.REPORTS, table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.REPORTS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long reportId;
 
     private BigDecimal soldValue;
@@ -36,6 +42,22 @@ public class Report {
 
     private String type;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period_type")
+    private ReportPeriodType periodType;
+
+    @Column(name = "period_year")
+    private Integer year;
+
+    // 0 for a year report
+    @Column(name = "period_month")
+    private Integer month;
+
+    private LocalDateTime generatedAt;
+
+    // ledger watermark of the period when the report was generated
+    private Long sourceWatermark;
+
 
     @Override
     public String toString() {
@@ -46,6 +68,9 @@ public class Report {
                 "\naverageEarningsPerM3=" + averageEarningsPerM3 +
                 "\nincome=" + income +
                 "\ntype='" + type + '\'' +
+                "\nyear=" + year +
+                "\nmonth=" + month +
+                "\ngeneratedAt=" + generatedAt +
                 '}';
     }
 }
@@ -0,0 +1,46 @@
+package com.tradesystem.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "report_aggregates",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"period_year", "period_month"}))
+public class ReportAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "report_aggregate_id")
+    private Long id;
+
+    @Column(name = "period_year", nullable = false)
+    private int year;
+
+    @Column(name = "period_month", nullable = false)
+    private int month;
+
+    private BigDecimal soldValue;
+
+    private BigDecimal boughtValue;
+
+    private BigDecimal soldQuantity;
+
+    private BigDecimal sumCosts;
+
+    private BigDecimal buyersNotPaidInvoices;
+
+    // raised by every change of the row, report snapshots compare it to see if they are stale
+    private long revision;
+
+}
@@ -0,0 +1,46 @@
+package com.tradesystem.report;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Optional;
+
+@Repository
+public interface ReportAggregateDao extends JpaRepository<ReportAggregate, Long> {
+
+    Optional<ReportAggregate> findByYearAndMonth(int year, int month);
+
+    boolean existsByYearAndMonth(int year, int month);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT r FROM ReportAggregate r WHERE r.year = ?1 AND r.month = ?2")
+    Optional<ReportAggregate> lockByYearAndMonth(int year, int month);
+
+    /**
+     * Grows with every change and every new row of the month, or of the whole year for month 0.
+     */
+    @Query(value = "SELECT COALESCE(SUM(r.revision + 1), 0) FROM ReportAggregate r " +
+            "WHERE r.year = ?1 AND (?2 = 0 OR r.month = ?2)")
+    long getWatermark(int year, int month);
+
+    @Modifying
+    @Query(value = "UPDATE ReportAggregate r " +
+            "SET r.soldValue = r.soldValue + ?3, r.boughtValue = r.boughtValue + ?4, " +
+            "r.soldQuantity = r.soldQuantity + ?5, r.sumCosts = r.sumCosts + ?6, " +
+            "r.revision = r.revision + 1 " +
+            "WHERE r.year = ?1 AND r.month = ?2")
+    int addToMonth(int year, int month, BigDecimal soldValue, BigDecimal boughtValue,
+                   BigDecimal soldQuantity, BigDecimal sumCosts);
+
+    @Modifying
+    @Query(value = "UPDATE ReportAggregate r " +
+            "SET r.buyersNotPaidInvoices = ?3, r.revision = r.revision + 1 " +
+            "WHERE r.year = ?1 AND r.month = ?2")
+    int setMonthNotPaidInvoices(int year, int month, BigDecimal buyersNotPaidInvoices);
+
+}
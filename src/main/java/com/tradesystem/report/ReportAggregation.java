@@ -0,0 +1,58 @@
+package com.tradesystem.report;
+
+import com.tradesystem.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Sums of one or more months. Amounts are Money, so merging months adds exact
+ * fixed-scale values; they are converted back in toReport and when stored.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class ReportAggregation {
+
+    private final Money soldValue;
+    private final Money boughtValue;
+    private final BigDecimal soldQuantity;
+    private final Money sumCosts;
+    private final Money buyersNotPaidInvoices;
+
+    public static ReportAggregation empty() {
+        return new ReportAggregation(Money.ZERO, Money.ZERO, BigDecimal.ZERO, Money.ZERO, Money.ZERO);
+    }
+
+    public ReportAggregation merge(ReportAggregation other) {
+        return ReportAggregation.builder()
+                .soldValue(soldValue.add(other.getSoldValue()))
+                .boughtValue(boughtValue.add(other.getBoughtValue()))
+                .soldQuantity(soldQuantity.add(other.getSoldQuantity()))
+                .sumCosts(sumCosts.add(other.getSumCosts()))
+                .buyersNotPaidInvoices(buyersNotPaidInvoices.add(other.getBuyersNotPaidInvoices()))
+                .build();
+    }
+
+    public Report toReport(String type) {
+        BigDecimal sold = soldValue.toBigDecimal();
+        BigDecimal bought = boughtValue.toBigDecimal();
+        BigDecimal averageSold = sold.divide(soldQuantity, RoundingMode.HALF_EVEN);
+        BigDecimal averagePurchase = bought.divide(soldQuantity, RoundingMode.HALF_EVEN);
+
+        return Report.builder()
+                .soldValue(sold)
+                .boughtValue(bought)
+                .soldQuantity(soldQuantity)
+                .averageEarningsPerM3(averageSold.subtract(averagePurchase))
+                .income(soldValue.subtract(boughtValue).toBigDecimal())
+                .buyersNotPaidInvoices(buyersNotPaidInvoices.toBigDecimal())
+                .sumCosts(sumCosts.toBigDecimal())
+                .type(type)
+                .build();
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.tradesystem.report;
+
+import com.tradesystem.cost.CostDao;
+import com.tradesystem.invoice.InvoiceDao;
+import com.tradesystem.money.Money;
+import com.tradesystem.orderdetails.OrderDetailsDao;
+import com.tradesystem.orderdetails.OrderDetailsSummary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+@Service
+public class ReportAggregationService {
+
+    private OrderDetailsDao orderDetailsDao;
+    private CostDao costDao;
+    private InvoiceDao invoiceDao;
+
+
+    public ReportAggregationService(OrderDetailsDao orderDetailsDao, CostDao costDao, InvoiceDao invoiceDao) {
+        this.orderDetailsDao = orderDetailsDao;
+        this.costDao = costDao;
+        this.invoiceDao = invoiceDao;
+    }
+
+    /**
+     * Sums everything the month report needs with three aggregate queries
+     * instead of walking every order and its details in memory.
+     */
+    @Transactional
+    public ReportAggregation aggregateMonth(int month, int year) {
+        OrderDetailsSummary summary = orderDetailsDao.getMonthSummary(month, year);
+        BigDecimal costs = costDao.sumMonthCosts(month, year);
+        BigDecimal notPaidInvoices = invoiceDao.sumBuyersMonthNotPaidInvoices(month, year);
+
+        return ReportAggregation.builder()
+                .soldValue(Money.of(summary.getBuyerSum()))
+                .boughtValue(Money.of(summary.getSupplierSum()))
+                .soldQuantity(summary.getQuantity())
+                .sumCosts(Money.of(costs).negate())
+                .buyersNotPaidInvoices(Money.of(notPaidInvoices))
+                .build();
+    }
+
+    @Transactional
+    public Money sumMonthNotPaidInvoices(int month, int year) {
+        return Money.of(invoiceDao.sumBuyersMonthNotPaidInvoices(month, year));
+    }
+
+}
@@ -1,18 +1,26 @@
 package com.tradesystem.report;
 
-import com.tradesystem.user.RoleSecurity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradesystem.pagination.KeysetPage;
+import com.tradesystem.pagination.NdjsonWriter;
+import com.tradesystem.security.AdminRole;
+import com.tradesystem.security.UserRole;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.YearMonth;
 import java.util.List;
 
 @Log4j2
 @RestController
+@UserRole
 @RequestMapping("/report")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class ReportController {
@@ -20,57 +28,131 @@ public class ReportController {
     //TODO change String params to LocalDate (at front)
 
     private ReportService reportService;
-    private ReportYearService reportYearService;
     private ReportMonthService reportMonthService;
+    private ReportYearService reportYearService;
     private ReportMapper reportMapper;
-    private RoleSecurity roleSecurity;
+    private ReportLedgerService reportLedgerService;
+    private ReportJobService reportJobService;
+    private ObjectMapper objectMapper;
 
     private Logger logger = LogManager.getLogger(ReportController.class);
 
-    public ReportController(ReportService reportService, ReportYearService reportYearService,
-                            ReportMonthService reportMonthService, ReportMapper reportMapper, RoleSecurity roleSecurity) {
+    public ReportController(ReportService reportService, ReportMonthService reportMonthService,
+                            ReportYearService reportYearService, ReportMapper reportMapper,
+                            ReportLedgerService reportLedgerService, ReportJobService reportJobService,
+                            ObjectMapper objectMapper) {
         this.reportService = reportService;
-        this.reportYearService = reportYearService;
         this.reportMonthService = reportMonthService;
+        this.reportYearService = reportYearService;
         this.reportMapper = reportMapper;
-        this.roleSecurity = roleSecurity;
+        this.reportLedgerService = reportLedgerService;
+        this.reportJobService = reportJobService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/generateMonthReport")
-    public ReportDto generateMonthReport(@RequestParam("localDate")
-                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String localDate) {
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReportJobDto generateMonthReport(@RequestParam("localDate")
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String localDate) {
         logger.info("Generowanie miesiecznego raportu. Data otrzymana w requescie: " + localDate);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         int year = Integer.valueOf(localDate.substring(0, 4));
         int month = Integer.valueOf(localDate.substring(5, 7));
-        Report report = reportMonthService.generateMonthReport(month, year);
+        ReportJob reportJob = reportJobService.submitMonthReport(month, year);
 
-        return reportMapper.toDto(report);
+        return reportMapper.toDto(reportJob);
     }
 
     @PostMapping("/generateYearReport")
-    public ReportDto generateYearReport(@RequestParam("localDate")
-                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String localDate) {
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReportJobDto generateYearReport(@RequestParam("localDate")
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String localDate) {
 
         logger.info("Generowanie rocznego raportu. Data otrzymana w requescie: " + localDate);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
+        int year = Integer.valueOf(localDate.substring(0, 4));
+        ReportJob reportJob = reportJobService.submitYearReport(year);
 
+        return reportMapper.toDto(reportJob);
+    }
+
+    @PostMapping("/generateRangeReport")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReportJobDto generateRangeReport(@RequestParam("from") String from,
+                                            @RequestParam("to") String to) {
+        logger.info("Generowanie raportu za okres " + from + " - " + to);
+
+        ReportJob reportJob = reportJobService.submitRangeReport(YearMonth.parse(from), YearMonth.parse(to));
+
+        return reportMapper.toDto(reportJob);
+    }
+
+    /**
+     * The stored month report while it is fresh, otherwise 202 with the job generating it.
+     */
+    @GetMapping("/month")
+    public ResponseEntity<?> getMonthReport(@RequestParam("localDate")
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String localDate) {
         int year = Integer.valueOf(localDate.substring(0, 4));
-        Report report = reportYearService.generateYearReport(year);
+        int month = Integer.valueOf(localDate.substring(5, 7));
 
-        return reportMapper.toDto(report);
+        Report report = reportMonthService.findFreshMonthReport(month, year);
+        if (report != null) {
+            return ResponseEntity.ok(reportMapper.toDto(report));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(reportMapper.toDto(reportJobService.submitMonthReport(month, year)));
     }
 
-    @GetMapping("getAll")
+    /**
+     * The stored year report while it is fresh, otherwise 202 with the job generating it.
+     */
+    @GetMapping("/year")
+    public ResponseEntity<?> getYearReport(@RequestParam("localDate")
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String localDate) {
+        int year = Integer.valueOf(localDate.substring(0, 4));
+
+        Report report = reportYearService.findFreshYearReport(year);
+        if (report != null) {
+            return ResponseEntity.ok(reportMapper.toDto(report));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(reportMapper.toDto(reportJobService.submitYearReport(year)));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ReportJobDto getJob(@PathVariable("id") String id) {
+        return reportMapper.toDto(reportJobService.getJob(id));
+    }
+
+    @AdminRole
+    @PostMapping("/rebuildAggregates")
+    public int rebuildAggregates() {
+        logger.info("Przeliczanie agregatow raportow");
+
+        return reportLedgerService.rebuild();
+    }
+
+    @GetMapping("/getAll")
     public List<ReportDto> getAllReports() {
         List<Report> reports = reportService.getAllReports();
 
         return reportMapper.toDto(reports);
     }
 
+    @GetMapping("/getPage")
+    public KeysetPage<ReportDto> getPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "size", required = false) Integer size) {
+        return reportService.getPage(cursor, size)
+                .map(reportMapper::toDto);
+    }
+
+    @GetMapping("/stream")
+    public void stream(HttpServletResponse response) throws IOException {
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, response);
+
+        reportService.streamAll(report -> writer.write(reportMapper.toDto(report)));
+        writer.flush();
+    }
+
 }
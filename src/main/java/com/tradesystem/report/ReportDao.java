@@ -1,10 +1,27 @@
 package com.tradesystem.report;
 
+import com.tradesystem.pagination.EntityStreamer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface ReportDao extends JpaRepository<Report, Long> {
 
-    Report findByType(String type);
+    Report findByPeriodTypeAndYearAndMonth(ReportPeriodType periodType, Integer year, Integer month);
+
+    @Query(value = "SELECT r FROM Report r WHERE r.reportId > ?1 ORDER BY r.reportId")
+    List<Report> getPageAfter(Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EntityStreamer.FETCH_SIZE))
+    @Query(value = "SELECT r FROM Report r ORDER BY r.reportId")
+    Stream<Report> streamAll();
 }
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 @Builder
@@ -21,5 +22,8 @@ public class ReportDto {
     private BigDecimal sumCosts;
     private BigDecimal buyersNotPaidInvoices;
     private String type;
+    private Integer year;
+    private Integer month;
+    private LocalDateTime generatedAt;
 
 }
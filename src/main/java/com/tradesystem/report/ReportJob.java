@@ -0,0 +1,58 @@
+package com.tradesystem.report;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One submitted report generation. Written by the worker thread and read by status
+ * requests, so every field that changes after submission is volatile.
+ */
+@Getter
+public class ReportJob {
+
+    private final String id = UUID.randomUUID().toString();
+    private final String period;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private volatile ReportJobStatus status = ReportJobStatus.QUEUED;
+    private volatile int progress;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+    private volatile Report result;
+
+
+    public ReportJob(String period) {
+        this.period = period;
+    }
+
+
+    void start() {
+        startedAt = LocalDateTime.now();
+        status = ReportJobStatus.RUNNING;
+    }
+
+    void setProgress(int progress) {
+        this.progress = progress;
+    }
+
+    void finish(Report result) {
+        this.result = result;
+        progress = 100;
+        finishedAt = LocalDateTime.now();
+        status = ReportJobStatus.DONE;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        status = ReportJobStatus.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == ReportJobStatus.DONE || status == ReportJobStatus.FAILED;
+    }
+
+}
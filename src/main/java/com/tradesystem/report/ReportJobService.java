@@ -0,0 +1,135 @@
+package com.tradesystem.report;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs month, year and range reports in the background. Jobs go to a small bounded pool of
+ * low priority threads and range reports size their month workers from what is left,
+ * so reports hold at most report.jobs.connections connections and never compete with
+ * order entry for all of them. A report requested for a period that is
+ * already queued or running joins that job instead of starting another one.
+ */
+@Log4j2
+@Service
+public class ReportJobService {
+
+    private ReportMonthService reportMonthService;
+    private ReportYearService reportYearService;
+    private ReportRangeService reportRangeService;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> runningJobs = new ConcurrentHashMap<>();
+
+    @Value("${report.jobs.retentionMinutes:60}")
+    private long retentionMinutes;
+
+    private Logger logger = LogManager.getLogger(ReportJobService.class);
+
+
+    public ReportJobService(ReportMonthService reportMonthService, ReportYearService reportYearService,
+                            ReportRangeService reportRangeService,
+                            @Value("${report.jobs.threads:1}") int threads,
+                            @Value("${report.jobs.queueSize:20}") int queueSize) {
+        this.reportMonthService = reportMonthService;
+        this.reportYearService = reportYearService;
+        this.reportRangeService = reportRangeService;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+
+    public ReportJob submitMonthReport(int month, int year) {
+        return submit("month-" + year + "-" + month,
+                progress -> reportMonthService.generateMonthReport(month, year));
+    }
+
+    public ReportJob submitYearReport(int year) {
+        return submit("year-" + year,
+                progress -> reportYearService.generateYearReport(year, progress));
+    }
+
+    public ReportJob submitRangeReport(YearMonth from, YearMonth to) {
+        return submit("range-" + from + "-" + to,
+                progress -> reportRangeService.generateRangeReport(from, to, progress));
+    }
+
+    public ReportJob getJob(String id) {
+        ReportJob job = jobs.get(id);
+        if (job == null) {
+            throw new RuntimeException("Nie znaleziono zadania raportu o id " + id);
+        }
+        return job;
+    }
+
+    @Scheduled(fixedDelayString = "${report.jobs.cleanupDelay:600000}")
+    public void removeOldJobs() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(retentionMinutes);
+
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(limit));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ReportJob submit(String period, ReportGeneration generation) {
+        return runningJobs.computeIfAbsent(period, key -> {
+            ReportJob job = new ReportJob(period);
+            try {
+                executor.execute(() -> run(job, generation));
+            } catch (RejectedExecutionException e) {
+                throw new RuntimeException("Zbyt wiele raportów w kolejce, spróbuj później");
+            }
+            jobs.put(job.getId(), job);
+            logger.info("Dodano do kolejki raport " + period + ", zadanie " + job.getId());
+            return job;
+        });
+    }
+
+    private void run(ReportJob job, ReportGeneration generation) {
+        job.start();
+        try {
+            job.finish(generation.generate(job::setProgress));
+            logger.info("Wygenerowano raport " + job.getPeriod() + " w "
+                    + Duration.between(job.getStartedAt(), job.getFinishedAt()).toMillis() + " ms");
+        } catch (RuntimeException e) {
+            logger.error("Błąd generowania raportu " + job.getPeriod() + ": " + e);
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            runningJobs.remove(job.getPeriod(), job);
+        }
+    }
+
+    private interface ReportGeneration {
+
+        Report generate(IntConsumer progress);
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.tradesystem.report;
+
+public enum ReportJobStatus {
+
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+
+}
@@ -0,0 +1,250 @@
+package com.tradesystem.report;
+
+import com.tradesystem.money.Money;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps one report_aggregates row per (year, month) up to date from inside the
+ * transactions that change orders, costs and invoices, so reports only read it.
+ * A missing row is built from the committed source tables in a new transaction the first
+ * time it is needed, and the transaction that loses the race for it only adds its change,
+ * so two transactions creating the same month both succeed.
+ * Every change raises the row's revision, which stored reports keep as their watermark.
+ * <p>
+ * Sums of not paid invoices are not changed by deltas. They are summed again once the
+ * invoice transaction commits, in a new transaction holding the row lock, the same way
+ * MerchantBalanceService recalculates balances.
+ */
+@Log4j2
+@Service
+public class ReportLedgerService {
+
+    private ReportAggregateDao reportAggregateDao;
+    private ReportAggregationService reportAggregationService;
+    private ReportMonthCache reportMonthCache;
+    private TransactionTemplate refreshTransactionTemplate;
+
+    private Logger logger = LogManager.getLogger(ReportLedgerService.class);
+
+
+    public ReportLedgerService(ReportAggregateDao reportAggregateDao,
+                               ReportAggregationService reportAggregationService,
+                               ReportMonthCache reportMonthCache,
+                               PlatformTransactionManager transactionManager) {
+        this.reportAggregateDao = reportAggregateDao;
+        this.reportAggregationService = reportAggregationService;
+        this.reportMonthCache = reportMonthCache;
+        this.refreshTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.refreshTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+
+    @Transactional
+    public ReportAggregation getMonthAggregation(int month, int year) {
+        Optional<ReportAggregate> aggregate = reportAggregateDao.findByYearAndMonth(year, month);
+
+        return aggregate.map(this::toAggregation).orElseGet(() -> createMonth(month, year));
+    }
+
+    /**
+     * Watermark of the month's ledger rows, or of the whole year's for month 0.
+     */
+    @Transactional(readOnly = true)
+    public long getWatermark(int month, int year) {
+        return reportAggregateDao.getWatermark(year, month);
+    }
+
+    @Transactional
+    public void addOrderDetails(LocalDate date, BigDecimal buyerSum, BigDecimal supplierSum, BigDecimal quantity) {
+        addToMonth(date, buyerSum, supplierSum, quantity, BigDecimal.ZERO);
+    }
+
+    @Transactional
+    public void subtractOrderDetails(LocalDate date, BigDecimal buyerSum, BigDecimal supplierSum, BigDecimal quantity) {
+        addToMonth(date, buyerSum.negate(), supplierSum.negate(), quantity.negate(), BigDecimal.ZERO);
+    }
+
+    @Transactional
+    public void addCost(LocalDate date, BigDecimal value) {
+        // costs are kept negative, the same way the report shows them
+        addToMonth(date, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, value.negate());
+    }
+
+    @Transactional
+    public void subtractCost(LocalDate date, BigDecimal value) {
+        addToMonth(date, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, value);
+    }
+
+    /**
+     * Sums the month's not paid invoices again once the current transaction commits.
+     */
+    @Transactional
+    public void refreshNotPaidInvoices(LocalDate date) {
+        YearMonth yearMonth = YearMonth.from(date);
+        reportMonthCache.evict(yearMonth);
+
+        getPendingRefreshes().add(yearMonth);
+    }
+
+    @Transactional
+    public int rebuild() {
+        reportMonthCache.evictAll();
+        List<ReportAggregate> aggregates = reportAggregateDao.findAll();
+
+        for (ReportAggregate aggregate : aggregates) {
+            ReportAggregation aggregation = reportAggregationService.aggregateMonth(aggregate.getMonth(), aggregate.getYear());
+
+            aggregate.setSoldValue(aggregation.getSoldValue().toBigDecimal());
+            aggregate.setBoughtValue(aggregation.getBoughtValue().toBigDecimal());
+            aggregate.setSoldQuantity(aggregation.getSoldQuantity());
+            aggregate.setSumCosts(aggregation.getSumCosts().toBigDecimal());
+            aggregate.setBuyersNotPaidInvoices(aggregation.getBuyersNotPaidInvoices().toBigDecimal());
+            aggregate.setRevision(aggregate.getRevision() + 1);
+
+            reportAggregateDao.save(aggregate);
+        }
+        logger.info("Przeliczono agregaty raportów dla " + aggregates.size() + " miesięcy");
+
+        return aggregates.size();
+    }
+
+    private void addToMonth(LocalDate date, BigDecimal soldValue, BigDecimal boughtValue,
+                            BigDecimal soldQuantity, BigDecimal sumCosts) {
+        int month = date.getMonthValue();
+        int year = date.getYear();
+        reportMonthCache.evict(YearMonth.of(year, month));
+
+        // the row is created before the update, an update of a missing row would lock the gap the insert needs
+        if (!reportAggregateDao.existsByYearAndMonth(year, month)) {
+            createMonth(month, year);
+        }
+        int updated = reportAggregateDao.addToMonth(year, month, scale(soldValue), scale(boughtValue),
+                scale(soldQuantity), scale(sumCosts));
+
+        if (updated == 0) {
+            throw new RuntimeException("Brak agregatu raportu za " + YearMonth.of(year, month));
+        }
+    }
+
+    /**
+     * Inserts the month's row in a new transaction, so it holds only committed changes
+     * and the calling transaction adds its own. A row inserted by another transaction
+     * in the meantime is kept.
+     */
+    private ReportAggregation createMonth(int month, int year) {
+        try {
+            return refreshTransactionTemplate.execute(status -> insertFromSource(month, year));
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Agregat raportu za " + YearMonth.of(year, month) + " utworzyła inna transakcja");
+            return reportAggregationService.aggregateMonth(month, year);
+        }
+    }
+
+    private ReportAggregation insertFromSource(int month, int year) {
+        ReportAggregation aggregation = reportAggregationService.aggregateMonth(month, year);
+
+        reportAggregateDao.saveAndFlush(ReportAggregate.builder()
+                .year(year)
+                .month(month)
+                .soldValue(aggregation.getSoldValue().toBigDecimal())
+                .boughtValue(aggregation.getBoughtValue().toBigDecimal())
+                .soldQuantity(scale(aggregation.getSoldQuantity()))
+                .sumCosts(aggregation.getSumCosts().toBigDecimal())
+                .buyersNotPaidInvoices(aggregation.getBuyersNotPaidInvoices().toBigDecimal())
+                .revision(0)
+                .build());
+        return aggregation;
+    }
+
+    private void refreshNotPaidInvoicesAfterCommit(YearMonth yearMonth) {
+        // a transaction that lost the race for a new month's row is retried once, the row exists by then
+        for (int attempt = 1; ; attempt++) {
+            try {
+                refreshTransactionTemplate.execute(status -> {
+                    refreshNotPaidInvoices(yearMonth.getMonthValue(), yearMonth.getYear());
+                    return null;
+                });
+                return;
+            } catch (DataAccessException e) {
+                if (attempt == 2) {
+                    // the invoices are committed already, the next change of the month or a rebuild repairs the row
+                    logger.error("Nie przeliczono niezapłaconych faktur za " + yearMonth, e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void refreshNotPaidInvoices(int month, int year) {
+        reportMonthCache.evict(YearMonth.of(year, month));
+
+        // the locking read does not start the snapshot, so the sum below sees every invoice committed before the lock
+        if (!reportAggregateDao.lockByYearAndMonth(year, month).isPresent()) {
+            // inserted in this transaction, it already holds the gap lock
+            insertFromSource(month, year);
+            return;
+        }
+        Money notPaidInvoices = reportAggregationService.sumMonthNotPaidInvoices(month, year);
+        reportAggregateDao.setMonthNotPaidInvoices(year, month, notPaidInvoices.toBigDecimal());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<YearMonth> getPendingRefreshes() {
+        Set<YearMonth> pendingRefreshes = (Set<YearMonth>) TransactionSynchronizationManager.getResource(this);
+        if (pendingRefreshes != null) {
+            return pendingRefreshes;
+        }
+
+        Set<YearMonth> months = new TreeSet<>();
+        TransactionSynchronizationManager.bindResource(this, months);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                for (YearMonth yearMonth : months) {
+                    refreshNotPaidInvoicesAfterCommit(yearMonth);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReportLedgerService.this);
+            }
+        });
+        return months;
+    }
+
+    private ReportAggregation toAggregation(ReportAggregate aggregate) {
+        return ReportAggregation.builder()
+                .soldValue(Money.of(aggregate.getSoldValue()))
+                .boughtValue(Money.of(aggregate.getBoughtValue()))
+                .soldQuantity(aggregate.getSoldQuantity())
+                .sumCosts(Money.of(aggregate.getSumCosts()))
+                .buyersNotPaidInvoices(Money.of(aggregate.getBuyersNotPaidInvoices()))
+                .build();
+    }
+
+    private BigDecimal scale(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+}
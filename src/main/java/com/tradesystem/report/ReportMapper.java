@@ -18,6 +18,23 @@ public class ReportMapper {
                 .sumCosts(report.getSumCosts())
                 .buyersNotPaidInvoices(report.getBuyersNotPaidInvoices())
                 .type(report.getType())
+                .year(report.getYear())
+                .month(report.getMonth())
+                .generatedAt(report.getGeneratedAt())
+                .build();
+    }
+
+    public ReportJobDto toDto(ReportJob reportJob) {
+        return ReportJobDto.builder()
+                .id(reportJob.getId())
+                .period(reportJob.getPeriod())
+                .status(reportJob.getStatus())
+                .progress(reportJob.getProgress())
+                .submittedAt(reportJob.getSubmittedAt())
+                .startedAt(reportJob.getStartedAt())
+                .finishedAt(reportJob.getFinishedAt())
+                .error(reportJob.getError())
+                .result(reportJob.getResult() != null ? toDto(reportJob.getResult()) : null)
                 .build();
     }
 
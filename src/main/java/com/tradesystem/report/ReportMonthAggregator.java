@@ -0,0 +1,40 @@
+package com.tradesystem.report;
+
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+
+/**
+ * Decides where the sums of one month come from, for every report built out of months,
+ * so a year report and a range report over the same months always agree. Open months
+ * are summed from the source tables; closed months are read from their ledger row
+ * through ReportMonthCache, outside the caller's transaction.
+ */
+@Service
+public class ReportMonthAggregator {
+
+    private ReportLedgerService reportLedgerService;
+    private ReportAggregationService reportAggregationService;
+    private ReportMonthCache reportMonthCache;
+
+
+    public ReportMonthAggregator(ReportLedgerService reportLedgerService,
+                                 ReportAggregationService reportAggregationService,
+                                 ReportMonthCache reportMonthCache) {
+        this.reportLedgerService = reportLedgerService;
+        this.reportAggregationService = reportAggregationService;
+        this.reportMonthCache = reportMonthCache;
+    }
+
+
+    public ReportAggregation aggregate(YearMonth yearMonth) {
+        int month = yearMonth.getMonthValue();
+        int year = yearMonth.getYear();
+
+        if (!reportMonthCache.isClosed(yearMonth)) {
+            return reportAggregationService.aggregateMonth(month, year);
+        }
+        return reportMonthCache.getOrLoad(yearMonth, () -> reportLedgerService.getMonthAggregation(month, year));
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.tradesystem.report;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Aggregates of closed months. A closed month only changes when someone books
+ * an order, cost or invoice back-dated into it; the ledger evicts it then.
+ * A missing month is read in its own transaction, started after the generation is
+ * taken, so a report transaction's older snapshot can never be cached.
+ */
+@Component
+public class ReportMonthCache {
+
+    private final Map<YearMonth, ReportAggregation> closedMonths = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final TransactionTemplate loadTransactionTemplate;
+
+
+    public ReportMonthCache(PlatformTransactionManager transactionManager) {
+        this.loadTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.loadTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+
+    public boolean isClosed(YearMonth yearMonth) {
+        return yearMonth.isBefore(YearMonth.now());
+    }
+
+    public ReportAggregation get(YearMonth yearMonth) {
+        return closedMonths.get(yearMonth);
+    }
+
+    /**
+     * Cached aggregate of a closed month, otherwise the loader's result read in a new
+     * transaction and cached unless something was evicted while it ran.
+     */
+    public ReportAggregation getOrLoad(YearMonth yearMonth, Supplier<ReportAggregation> loader) {
+        ReportAggregation cached = get(yearMonth);
+        if (cached != null) {
+            return cached;
+        }
+
+        long readGeneration = getGeneration();
+        ReportAggregation aggregation = loadTransactionTemplate.execute(status -> loader.get());
+        put(yearMonth, aggregation, readGeneration);
+
+        return aggregation;
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Stores an aggregate read at the given generation, unless something was
+     * evicted in the meantime and the value may already be stale.
+     */
+    public void put(YearMonth yearMonth, ReportAggregation aggregation, long readGeneration) {
+        if (isClosed(yearMonth) && generation.get() == readGeneration) {
+            closedMonths.put(yearMonth, aggregation);
+        }
+    }
+
+    public void evict(YearMonth yearMonth) {
+        evictAfterCommit(() -> closedMonths.remove(yearMonth));
+    }
+
+    public void evictAll() {
+        evictAfterCommit(closedMonths::clear);
+    }
+
+    private void evictAfterCommit(Runnable eviction) {
+        generation.incrementAndGet();
+        eviction.run();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+}
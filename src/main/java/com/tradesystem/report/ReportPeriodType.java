@@ -0,0 +1,8 @@
+package com.tradesystem.report;
+
+public enum ReportPeriodType {
+
+    MONTH,
+    YEAR
+
+}
@@ -0,0 +1,124 @@
+package com.tradesystem.report;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Reports over any range of whole months. The range is split into months that are
+ * aggregated in parallel on a dedicated ForkJoinPool, each month by ReportMonthAggregator
+ * in its own transaction and so on its own connection, and the partial sums are merged.
+ * Range reports are computed on request and not stored.
+ * <p>
+ * Range reports run as report jobs, so the pool is sized from the connections report
+ * jobs may hold together (report.jobs.connections, 6 of the default 10 pooled ones).
+ * Every job thread keeps two of them for itself, its report transaction and a closed
+ * month read in its own transaction; the rest are the pool's workers, at most one per core.
+ */
+@Log4j2
+@Service
+public class ReportRangeService {
+
+    private ReportMonthAggregator reportMonthAggregator;
+
+    private final ForkJoinPool pool;
+
+    @Value("${report.range.maxMonths:240}")
+    private int maxMonths;
+
+    private Logger logger = LogManager.getLogger(ReportRangeService.class);
+
+
+    public ReportRangeService(ReportMonthAggregator reportMonthAggregator,
+                              @Value("${report.jobs.threads:1}") int jobThreads,
+                              @Value("${report.jobs.connections:6}") int jobConnections) {
+        this.reportMonthAggregator = reportMonthAggregator;
+
+        int workers = Math.min(Runtime.getRuntime().availableProcessors(), jobConnections - 2 * jobThreads);
+        this.pool = new ForkJoinPool(Math.max(1, workers));
+        logger.info("Raporty za okres liczone przez " + pool.getParallelism() + " wątków");
+    }
+
+
+    public Report generateRangeReport(YearMonth from, YearMonth to) {
+        return generateRangeReport(from, to, progress -> { });
+    }
+
+    /**
+     * Same as generateRangeReport(from, to), reporting the percent of months done to progress.
+     */
+    public Report generateRangeReport(YearMonth from, YearMonth to, IntConsumer progress) {
+        List<YearMonth> months = getMonths(from, to);
+        long start = System.currentTimeMillis();
+
+        AtomicInteger done = new AtomicInteger();
+        ReportAggregation aggregation = pool.invoke(new MonthsTask(months, 0, months.size(), () ->
+                progress.accept(done.incrementAndGet() * 100 / months.size())));
+
+        logger.info("Wygenerowano raport za okres " + from + " - " + to + " (" + months.size() + " mies.) w "
+                + (System.currentTimeMillis() - start) + " ms");
+        return aggregation.toReport(from + " - " + to);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private List<YearMonth> getMonths(YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            throw new RuntimeException("Początek okresu " + from + " jest po jego końcu " + to);
+        }
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            if (months.size() == maxMonths) {
+                throw new RuntimeException("Okres raportu może mieć najwyżej " + maxMonths + " miesięcy");
+            }
+            months.add(month);
+        }
+        return months;
+    }
+
+    private class MonthsTask extends RecursiveTask<ReportAggregation> {
+
+        private final List<YearMonth> months;
+        private final int from;
+        private final int to;
+        private final Runnable onMonthDone;
+
+        private MonthsTask(List<YearMonth> months, int from, int to, Runnable onMonthDone) {
+            this.months = months;
+            this.from = from;
+            this.to = to;
+            this.onMonthDone = onMonthDone;
+        }
+
+        @Override
+        protected ReportAggregation compute() {
+            if (to - from == 1) {
+                ReportAggregation aggregation = reportMonthAggregator.aggregate(months.get(from));
+                onMonthDone.run();
+                return aggregation;
+            }
+            int middle = (from + to) >>> 1;
+            MonthsTask left = new MonthsTask(months, from, middle, onMonthDone);
+            MonthsTask right = new MonthsTask(months, middle, to, onMonthDone);
+
+            left.fork();
+            ReportAggregation rightAggregation = right.compute();
+            return left.join().merge(rightAggregation);
+        }
+    }
+
+}
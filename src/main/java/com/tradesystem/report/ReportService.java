@@ -1,17 +1,32 @@
 package com.tradesystem.report;
 
+import com.tradesystem.pagination.EntityStreamer;
+import com.tradesystem.pagination.KeysetCursor;
+import com.tradesystem.pagination.KeysetPage;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class ReportService {
 
     private final ReportDao reportDao;
+    private final EntityStreamer entityStreamer;
+    private final TransactionTemplate snapshotTransactionTemplate;
 
-    public ReportService(ReportDao reportDao) {
+    public ReportService(ReportDao reportDao, EntityStreamer entityStreamer,
+                         PlatformTransactionManager transactionManager) {
         this.reportDao = reportDao;
+        this.entityStreamer = entityStreamer;
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     @Transactional
@@ -19,8 +34,64 @@ public class ReportService {
         return reportDao.findAll();
     }
 
-    public boolean checkIfReportExist(String type) {
-        return reportDao.findByType(type) == null;
+    @Transactional(readOnly = true)
+    public KeysetPage<Report> getPage(String cursor, Integer size) {
+        int pageSize = KeysetCursor.size(size);
+        List<Report> rows = reportDao.getPageAfter(KeysetCursor.decode(cursor), KeysetCursor.limit(pageSize));
+
+        return KeysetPage.of(rows, pageSize, Report::getReportId);
+    }
+
+    @Transactional(readOnly = true)
+    public int streamAll(Consumer<Report> action) {
+        return entityStreamer.forEach(reportDao.streamAll(), action);
+    }
+
+    /**
+     * Stored report of the period if nothing in the ledger changed since it was generated, otherwise null.
+     */
+    public Report findFreshSnapshot(ReportPeriodType periodType, int year, int month, long watermark) {
+        Report snapshot = reportDao.findByPeriodTypeAndYearAndMonth(periodType, year, month);
+
+        if (snapshot != null && snapshot.getSourceWatermark() != null && snapshot.getSourceWatermark() == watermark) {
+            return snapshot;
+        }
+        return null;
+    }
+
+    /**
+     * Stores the report as the period's snapshot, replacing the previous one, in its own transaction.
+     */
+    public Report saveSnapshot(Report report, ReportPeriodType periodType, int year, int month, long watermark) {
+        try {
+            return snapshotTransactionTemplate.execute(status -> storeSnapshot(report, periodType, year, month, watermark));
+        } catch (DataIntegrityViolationException e) {
+            // another report of the period stored its first snapshot meanwhile, the retry finds and replaces it
+            return snapshotTransactionTemplate.execute(status -> storeSnapshot(report, periodType, year, month, watermark));
+        }
+    }
+
+    private Report storeSnapshot(Report report, ReportPeriodType periodType, int year, int month, long watermark) {
+        Report snapshot = reportDao.findByPeriodTypeAndYearAndMonth(periodType, year, month);
+        if (snapshot == null) {
+            snapshot = Report.builder()
+                    .periodType(periodType)
+                    .year(year)
+                    .month(month)
+                    .build();
+        }
+        snapshot.setSoldValue(report.getSoldValue());
+        snapshot.setBoughtValue(report.getBoughtValue());
+        snapshot.setSoldQuantity(report.getSoldQuantity());
+        snapshot.setAverageEarningsPerM3(report.getAverageEarningsPerM3());
+        snapshot.setIncome(report.getIncome());
+        snapshot.setSumCosts(report.getSumCosts());
+        snapshot.setBuyersNotPaidInvoices(report.getBuyersNotPaidInvoices());
+        snapshot.setType(report.getType());
+        snapshot.setGeneratedAt(LocalDateTime.now());
+        snapshot.setSourceWatermark(watermark);
+
+        return reportDao.saveAndFlush(snapshot);
     }
 
 }
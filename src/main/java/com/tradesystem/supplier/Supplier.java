@@ -19,7 +19,9 @@ import javax.persistence.*;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "suppliers")
+@Table(name = "suppliers", indexes = {
+        @Index(columnList = "currentBalance")
+})
 public class Supplier {
 
     @Id
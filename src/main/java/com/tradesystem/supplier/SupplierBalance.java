@@ -0,0 +1,22 @@
+package com.tradesystem.supplier;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+public class SupplierBalance {
+
+    private Long supplierId;
+    private BigDecimal balance;
+
+    public SupplierBalance(Long supplierId, BigDecimal notUsedSum, BigDecimal negativeSum) {
+        this.supplierId = supplierId;
+        this.balance = orZero(notUsedSum).add(orZero(negativeSum));
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+}
@@ -1,29 +1,33 @@
 package com.tradesystem.supplier;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tradesystem.invoice.Invoice;
 import com.tradesystem.invoice.InvoiceDto;
 import com.tradesystem.invoice.InvoiceMapper;
 import com.tradesystem.invoice.InvoiceService;
-import com.tradesystem.order.Order;
 import com.tradesystem.order.OrderDto;
 import com.tradesystem.order.OrderMapper;
+import com.tradesystem.order.OrderRow;
 import com.tradesystem.order.OrderService;
+import com.tradesystem.pagination.KeysetPage;
+import com.tradesystem.pagination.NdjsonWriter;
 import com.tradesystem.price.Price;
 import com.tradesystem.price.PriceDto;
 import com.tradesystem.price.PriceMapper;
-import com.tradesystem.user.RoleSecurity;
+import com.tradesystem.security.UserRole;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @Log4j2
 @RestController
+@UserRole
 @RequestMapping("/supplier")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class SupplierController {
@@ -35,7 +39,7 @@ public class SupplierController {
     private OrderMapper orderMapper;
     private InvoiceService invoiceService;
     private InvoiceMapper invoiceMapper;
-    private RoleSecurity roleSecurity;
+    private ObjectMapper objectMapper;
 
     private Logger logger = LogManager.getLogger(SupplierController.class);
 
@@ -43,7 +47,7 @@ public class SupplierController {
     public SupplierController(SupplierService supplierService, SupplierMapper supplierMapper,
                               PriceMapper priceMapper, OrderService orderService,
                               OrderMapper orderMapper, InvoiceService invoiceService,
-                              InvoiceMapper invoiceMapper, RoleSecurity roleSecurity) {
+                              InvoiceMapper invoiceMapper, ObjectMapper objectMapper) {
         this.supplierService = supplierService;
         this.supplierMapper = supplierMapper;
         this.priceMapper = priceMapper;
@@ -51,7 +55,7 @@ public class SupplierController {
         this.orderMapper = orderMapper;
         this.invoiceService = invoiceService;
         this.invoiceMapper = invoiceMapper;
-        this.roleSecurity = roleSecurity;
+        this.objectMapper = objectMapper;
     }
 
 
@@ -59,9 +63,6 @@ public class SupplierController {
     public SupplierDto createBuyer(@RequestBody SupplierDto supplierDto) {
         logger.info("Dodawanie sprzedawcy: " + supplierDto);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         final Supplier supplier = supplierService.createSupplier(supplierDto);
 
         return supplierMapper.toDto(supplier);
@@ -74,6 +75,21 @@ public class SupplierController {
         return supplierMapper.toDto(suppliers);
     }
 
+    @GetMapping("/getPage")
+    public KeysetPage<SupplierDto> getPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "size", required = false) Integer size) {
+        return supplierService.getPage(cursor, size)
+                .map(supplierMapper::toDto);
+    }
+
+    @GetMapping("/stream")
+    public void stream(HttpServletResponse response) throws IOException {
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, response);
+
+        supplierService.streamAll(supplier -> writer.write(supplierMapper.toDto(supplier)));
+        writer.flush();
+    }
+
     @GetMapping("/getAllWithBalances")
     public List<SupplierDto> getAllWithBalances(){
         final List<Supplier> suppliers = supplierService.getBalances();
@@ -96,8 +112,8 @@ public class SupplierController {
         int m = Integer.valueOf(month);
         int y = Integer.valueOf(year);
 
-        List<Order> orders = orderService.getSupplierMonthOrders(id, m, y);
-        return orderMapper.toDto(orders);
+        List<OrderRow> orderRows = orderService.getSupplierMonthOrderRows(id, m, y);
+        return orderMapper.fromRows(orderRows);
     }
 
     @PutMapping("/updateSupplierName")
@@ -106,9 +122,6 @@ public class SupplierController {
 
         logger.info("Aktualizacja nazwy sprzedawcy z: " + oldSupplierName + " na: " + newSupplierName);
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        roleSecurity.checkUserRole(authentication);
-
         Supplier supplier = supplierService.updateSupplierName(oldSupplierName, newSupplierName);
         return supplierMapper.toDto(supplier);
     }
@@ -1,10 +1,57 @@
 package com.tradesystem.supplier;
 
+import com.tradesystem.pagination.EntityStreamer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface SupplierDao extends JpaRepository<Supplier, Long> {
 
+    /**
+     * Balance of a supplier: open paid invoices plus the negative invoice.
+     */
+    String BALANCE_SELECT = "SELECT new com.tradesystem.supplier.SupplierBalance(s.id, " +
+            "SUM(CASE WHEN i.isUsed = false AND i.isPaid = true THEN i.amountToUse ELSE 0 END), " +
+            "SUM(CASE WHEN i.amountToUse < 0 AND i.isUsed = false THEN i.amountToUse ELSE 0 END)) " +
+            "FROM Supplier s LEFT JOIN s.invoices i ";
+
     Supplier findByName(String name);
+
+    @Query(value = "SELECT s.id FROM Supplier s WHERE s.id IN ?1")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query(value = BALANCE_SELECT + "GROUP BY s.id")
+    List<SupplierBalance> getBalances();
+
+    @Query(value = BALANCE_SELECT + "WHERE s.id IN ?1 GROUP BY s.id")
+    List<SupplierBalance> getBalances(Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT s FROM Supplier s WHERE s.id IN ?1 ORDER BY s.id")
+    List<Supplier> lockByIds(Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "UPDATE Supplier s SET s.currentBalance = ?2 WHERE s.id = ?1")
+    int setCurrentBalance(Long id, BigDecimal currentBalance);
+
+    @Query(value = "SELECT s FROM Supplier s WHERE s.id > ?1 ORDER BY s.id")
+    List<Supplier> getPageAfter(Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EntityStreamer.FETCH_SIZE))
+    @Query(value = "SELECT s FROM Supplier s ORDER BY s.id")
+    Stream<Supplier> streamAll();
 }
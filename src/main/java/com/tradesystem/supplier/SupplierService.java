@@ -1,9 +1,10 @@
 package com.tradesystem.supplier;
 
-import com.tradesystem.invoice.Invoice;
-import com.tradesystem.invoice.InvoiceDao;
-import com.tradesystem.order.Order;
-import com.tradesystem.order.OrderDao;
+import com.tradesystem.orderfact.OrderFactStore;
+import com.tradesystem.orderfact.OrderFactTotals;
+import com.tradesystem.pagination.EntityStreamer;
+import com.tradesystem.pagination.KeysetCursor;
+import com.tradesystem.pagination.KeysetPage;
 import com.tradesystem.price.Price;
 import com.tradesystem.price.PriceDao;
 import org.springframework.stereotype.Service;
@@ -11,24 +12,26 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 public class SupplierService {
 
     private final SupplierDao supplierDao;
-    private final InvoiceDao invoiceDao;
     private final PriceDao priceDao;
-    private final OrderDao orderDao;
+    private final EntityStreamer entityStreamer;
+    private final OrderFactStore orderFactStore;
 
 
-    public SupplierService(SupplierDao supplierDao, InvoiceDao invoiceDao, PriceDao priceDao, OrderDao orderDao) {
+    public SupplierService(SupplierDao supplierDao, PriceDao priceDao, EntityStreamer entityStreamer,
+                           OrderFactStore orderFactStore) {
         this.supplierDao = supplierDao;
-        this.invoiceDao = invoiceDao;
         this.priceDao = priceDao;
-        this.orderDao = orderDao;
+        this.entityStreamer = entityStreamer;
+        this.orderFactStore = orderFactStore;
     }
 
 
@@ -37,6 +40,7 @@ public class SupplierService {
         if (validateSupplier(supplierDto)) {
             Supplier supplier = Supplier.builder()
                     .name(supplierDto.getName())
+                    .currentBalance(BigDecimal.ZERO)
                     .build();
 
             return supplierDao.save(supplier);
@@ -49,51 +53,39 @@ public class SupplierService {
         return supplierDao.findAll();
     }
 
-    @Transactional
-    public List<Supplier> getBalances() {
-        List<Supplier> suppliers = supplierDao.findAll();
-        List<Supplier> resultSuppliers = new ArrayList<>();
+    @Transactional(readOnly = true)
+    public KeysetPage<Supplier> getPage(String cursor, Integer size) {
+        int pageSize = KeysetCursor.size(size);
+        List<Supplier> rows = supplierDao.getPageAfter(KeysetCursor.decode(cursor), KeysetCursor.limit(pageSize));
 
-        calculateCurrentlyTakenQuantity(suppliers);
-
-        for (Supplier supplier : suppliers) {
-            supplier = setCurrentBalance(supplier);
-            resultSuppliers.add(supplier);
-        }
+        return KeysetPage.of(rows, pageSize, Supplier::getId);
+    }
 
-        return resultSuppliers;
+    @Transactional(readOnly = true)
+    public int streamAll(Consumer<Supplier> action) {
+        return entityStreamer.forEach(supplierDao.streamAll(), action);
     }
 
-    private void calculateCurrentlyTakenQuantity(List<Supplier> suppliers) {
-        int month = LocalDate.now().getMonthValue();
-        int year = LocalDate.now().getYear();
+    @Transactional(readOnly = true)
+    public List<Supplier> getBalances() {
+        List<Supplier> suppliers = supplierDao.findAll();
+        LocalDate now = LocalDate.now();
+        Map<Long, BigDecimal> quantities = getTakenQuantities(now.getMonthValue(), now.getYear());
 
         for (Supplier supplier : suppliers) {
-            List<Order> orders = orderDao.getSupplierMonthOrders(supplier.getId(), month, year);
-            BigDecimal sumQuantity = BigDecimal.valueOf(0);
-
-            for (Order order : orders) {
-                sumQuantity = sumQuantity.add(order.getOrderDetails().get(0).getQuantity());
-            }
-
-            supplier.setCurrentlyTakenQuantity(sumQuantity);
-            supplierDao.save(supplier);
+            supplier.setCurrentlyTakenQuantity(quantities.getOrDefault(supplier.getId(), BigDecimal.ZERO));
         }
+
+        return suppliers;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Supplier> getSuppliersMonthTakenQuantity(int month, int year) {
         List<Supplier> suppliers = supplierDao.findAll();
+        Map<Long, BigDecimal> quantities = getTakenQuantities(month, year);
 
         for (Supplier supplier : suppliers) {
-            List<Order> orders = orderDao.getSupplierMonthOrders(supplier.getId(), month, year);
-            BigDecimal sumQuantity = BigDecimal.valueOf(0);
-
-            for (Order order : orders) {
-                sumQuantity = sumQuantity.add(order.getOrderDetails().get(0).getQuantity());
-            }
-
-            supplier.setMonthTakenQuantity(sumQuantity);
+            supplier.setMonthTakenQuantity(quantities.getOrDefault(supplier.getId(), BigDecimal.ZERO));
         }
         return suppliers;
     }
@@ -111,24 +103,13 @@ public class SupplierService {
         return supplierDao.save(buyer);
     }
 
-    private Supplier setCurrentBalance(Supplier supplier) {
-
-        List<Invoice> notUsedInvoices = invoiceDao.getSupplierNotUsedInvoices(supplier.getId());
+    private Map<Long, BigDecimal> getTakenQuantities(int month, int year) {
+        Map<Long, BigDecimal> quantities = new HashMap<>();
 
-        BigDecimal balance = BigDecimal.valueOf(0);
-
-        for (Invoice invoice : notUsedInvoices) {
-            balance = balance.add(invoice.getAmountToUse());
-        }
-
-        Optional<Invoice> negativeInvoice = invoiceDao.getSupplierNegativeInvoice(supplier.getId());
-        if (negativeInvoice.isPresent()) {
-            balance = balance.add(negativeInvoice.get().getAmountToUse());
+        for (Map.Entry<Long, OrderFactTotals> entry : orderFactStore.getMonth(month, year).getSupplierTotals().entrySet()) {
+            quantities.put(entry.getKey(), entry.getValue().getQuantity());
         }
-
-        supplier.setCurrentBalance(balance);
-
-        return supplier;
+        return quantities;
     }
 
     private boolean validateSupplier(SupplierDto supplierDto) {
@@ -1,13 +0,0 @@
-package com.tradesystem.user;
-
-public class PermissionDeniedException extends RuntimeException {
-
-    public PermissionDeniedException() {
-
-    }
-
-    public PermissionDeniedException(String message) {
-        super(message);
-    }
-
-}
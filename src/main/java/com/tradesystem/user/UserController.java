@@ -4,6 +4,8 @@ package com.tradesystem.user;
 import com.tradesystem.jwt.AuthenticationRequest;
 import com.tradesystem.jwt.AuthenticationResponse;
 import com.tradesystem.jwt.JwtUtil;
+import com.tradesystem.security.AdminRole;
+import com.tradesystem.security.PublicEndpoint;
 import com.tradesystem.security.SecurityConfiguration;
 import com.tradesystem.userdetails.MyUserDetailsService;
 import lombok.extern.log4j.Log4j2;
@@ -43,17 +45,21 @@ public class UserController {
         this.passwordEncoder = passwordEncoder;
     }
 
+    @AdminRole
     @GetMapping("/getAll")
     public List<UserDto> getAll() {
         return userService.getAll();
     }
 
+    // Admin only: the request sets the role of the new account, so any logged in user could create an admin.
+    @AdminRole
     @PostMapping("/register")
     public UserDto registerUser(@RequestBody UserDto userDto) throws Exception {
         User user = userService.registerUser(userDto);
         return userMapper.toDto(user);
     }
 
+    @PublicEndpoint
     @PostMapping("/authenticate")
     public ResponseEntity<?> createAuthenticationToken(@RequestBody AuthenticationRequest authenticationRequest,
                                                                     HttpServletRequest httpServletRequest) throws Exception {
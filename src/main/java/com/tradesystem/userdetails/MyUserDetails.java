@@ -2,9 +2,11 @@ package com.tradesystem.userdetails;
 
 import com.tradesystem.user.User;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class MyUserDetails implements UserDetails {
@@ -12,6 +14,7 @@ public class MyUserDetails implements UserDetails {
     private String userName;
     private String password;
     private String email;
+    private String role;
     private List<GrantedAuthority> autorities;
 
 
@@ -23,6 +26,10 @@ public class MyUserDetails implements UserDetails {
         this.userName = user.getLogin();
         this.password = user.getPassword();
         this.email = user.getEmail();
+        this.role = user.getRole();
+        this.autorities = role != null
+                ? Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
+                : Collections.emptyList();
        // this.autorities = Arrays.stream(user.getRoles().split(","))
                 //.map(SimpleGrantedAuthority::new)
                 //.collect(Collectors.toList());
@@ -33,6 +40,10 @@ public class MyUserDetails implements UserDetails {
         return autorities;
     }
 
+    public String getRole() {
+        return role;
+    }
+
     @Override
     public String getPassword() {
         return password;
@@ -16,7 +16,7 @@ INSERT INTO prices(price, buyer_fk, product_fk) VALUES
 INSERT INTO prices(price, supplier_fk, product_fk) VALUES
 (90, 1, 1);
 
-INSERT INTO invoices(amount_to_use, value, date, is_paid, is_used, supplier_fk, is_created_to_order, to_equalize_negative_invoice) VALUES
-(10000, 10000, '2020-11-28', true, false, 1, false, false);
+INSERT INTO invoices(invoice_id, amount_to_use, value, date, is_paid, is_used, supplier_fk, is_created_to_order, to_equalize_negative_invoice) VALUES
+(1, 10000, 10000, '2020-11-28', true, false, 1, false, false);
 
 
@@ -0,0 +1,24 @@
+package com.tradesystem.benchmark;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BenchmarkResult {
+
+    private String name;
+    private int iterations;
+    private double meanMs;
+    private double p50Ms;
+    private double p95Ms;
+    private double maxMs;
+    private double operationsPerSecond;
+    private double statementsPerOperation;
+    private double allocatedBytesPerOperation;
+
+}
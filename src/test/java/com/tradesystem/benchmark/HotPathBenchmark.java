@@ -0,0 +1,220 @@
+package com.tradesystem.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tradesystem.benchmark.SyntheticDataGenerator.SyntheticData;
+import com.tradesystem.buyer.BuyerService;
+import com.tradesystem.order.CreateOrderRequest;
+import com.tradesystem.order.OrderBatchService;
+import com.tradesystem.order.OrderService;
+import com.tradesystem.orderdetails.OrderDetailsDto;
+import com.tradesystem.product.ProductDto;
+import com.tradesystem.report.ReportMonthService;
+import com.tradesystem.report.ReportYearService;
+import com.tradesystem.supplier.SupplierService;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the order-to-payment hot path, reports and balances on synthetic data in the
+ * embedded database. It is not part of the regular test run, start it with e.g.
+ * mvn test -Dtest=HotPathBenchmark -Dbenchmark=true -Dbenchmark.output=results.json
+ * A run with the default settings is kept in src/test/resources/benchmark/baseline.json.
+ */
+@Log4j2
+@SpringBootTest(properties = "jwt.secret=benchmark")
+@ActiveProfiles("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HotPathBenchmark {
+
+    @Autowired
+    private SyntheticDataGenerator syntheticDataGenerator;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderBatchService orderBatchService;
+    @Autowired
+    private ReportMonthService reportMonthService;
+    @Autowired
+    private ReportYearService reportYearService;
+    @Autowired
+    private BuyerService buyerService;
+    @Autowired
+    private SupplierService supplierService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+
+    @Value("${benchmark.buyers:50}")
+    private int buyers;
+    @Value("${benchmark.suppliers:20}")
+    private int suppliers;
+    @Value("${benchmark.products:5}")
+    private int products;
+    @Value("${benchmark.invoices:20}")
+    private int invoicesPerMerchant;
+    @Value("${benchmark.warmup:50}")
+    private int warmup;
+    @Value("${benchmark.iterations:200}")
+    private int iterations;
+    @Value("${benchmark.batchSize:100}")
+    private int batchSize;
+    @Value("${benchmark.output:benchmark-results.json}")
+    private String output;
+
+    private final Random random = new Random(42);
+
+    private Logger logger = LogManager.getLogger(HotPathBenchmark.class);
+
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+
+    @Test
+    void run() throws IOException {
+        statistics.setStatisticsEnabled(true);
+        SyntheticData data = syntheticDataGenerator.generate(buyers, suppliers, products, invoicesPerMerchant, 42);
+        LocalDate today = LocalDate.now();
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        results.add(measure("createOrder", iterations, () -> orderService.createOrder(randomOrder(data, today))));
+        results.add(measureBatch(data, today));
+        results.add(measure("generateMonthReport", iterations,
+                () -> reportMonthService.generateMonthReport(today.getMonthValue(), today.getYear())));
+        results.add(measure("generateYearReport", iterations,
+                () -> reportYearService.generateYearReport(today.getYear())));
+        results.add(measure("buyersBalances", iterations, () -> buyerService.getAllWithBalances()));
+        results.add(measure("suppliersBalances", iterations, () -> supplierService.getBalances()));
+
+        writeResults(results);
+    }
+
+    private BenchmarkResult measureBatch(SyntheticData data, LocalDate today) {
+        int batches = Math.max(1, iterations / 10);
+        BenchmarkResult result = measure("createOrdersBatch", batches, () -> {
+            List<CreateOrderRequest> requests = new ArrayList<>();
+            for (int i = 0; i < batchSize; i++) {
+                requests.add(randomOrder(data, today));
+            }
+            orderBatchService.createOrders(requests);
+        });
+        // throughput of a batch is counted in orders, not in calls
+        result.setOperationsPerSecond(result.getOperationsPerSecond() * batchSize);
+        return result;
+    }
+
+    private BenchmarkResult measure(String name, int count, Runnable operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+
+        long[] times = new long[count];
+        long statements = statistics.getPrepareStatementCount();
+        long allocatedBytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long operationStart = System.nanoTime();
+            operation.run();
+            times[i] = System.nanoTime() - operationStart;
+        }
+        long total = System.nanoTime() - start;
+        statements = statistics.getPrepareStatementCount() - statements;
+        allocatedBytes = allocatedBytes() - allocatedBytes;
+        Arrays.sort(times);
+
+        BenchmarkResult result = BenchmarkResult.builder()
+                .name(name)
+                .iterations(count)
+                .meanMs(toMs(total) / count)
+                .p50Ms(toMs(times[count / 2]))
+                .p95Ms(toMs(times[Math.min(count - 1, (int) (count * 0.95))]))
+                .maxMs(toMs(times[count - 1]))
+                .operationsPerSecond(count / (total / 1_000_000_000.0))
+                .statementsPerOperation((double) statements / count)
+                .allocatedBytesPerOperation((double) allocatedBytes / count)
+                .build();
+        logger.info("Benchmark " + name + ": " + result);
+        return result;
+    }
+
+    private CreateOrderRequest randomOrder(SyntheticData data, LocalDate date) {
+        OrderDetailsDto orderDetailsDto = new OrderDetailsDto();
+        orderDetailsDto.setProduct(ProductDto.builder()
+                .id(randomId(data.getProductIds()))
+                .build());
+        orderDetailsDto.setQuantity(BigDecimal.valueOf(10 + random.nextInt(30)));
+        orderDetailsDto.setTypedSoldPrice(BigDecimal.ZERO);
+        orderDetailsDto.setTypedBoughtPrice(BigDecimal.ZERO);
+        orderDetailsDto.setTransportNumber("T-" + random.nextInt(1_000_000));
+
+        CreateOrderRequest createOrderRequest = new CreateOrderRequest();
+        createOrderRequest.setDate(date);
+        createOrderRequest.setBuyerId(randomId(data.getBuyerIds()));
+        createOrderRequest.setSupplierId(randomId(data.getSupplierIds()));
+        createOrderRequest.setOrderDetails(new ArrayList<>(Arrays.asList(orderDetailsDto)));
+        return createOrderRequest;
+    }
+
+    private Long randomId(List<Long> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    /**
+     * Bytes allocated by the benchmark thread so far, or 0 on JVMs that do not count them.
+     */
+    private long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private double toMs(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private void writeResults(List<BenchmarkResult> results) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", LocalDateTime.now().toString());
+        report.put("buyers", buyers);
+        report.put("suppliers", suppliers);
+        report.put("products", products);
+        report.put("invoicesPerMerchant", invoicesPerMerchant);
+        report.put("results", results);
+
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(new File(output), report);
+        logger.info("Zapisano wyniki benchmarku do " + output);
+    }
+
+}
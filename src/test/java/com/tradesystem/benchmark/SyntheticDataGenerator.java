@@ -0,0 +1,127 @@
+package com.tradesystem.benchmark;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.invoice.Invoice;
+import com.tradesystem.invoice.InvoiceDao;
+import com.tradesystem.price.Price;
+import com.tradesystem.price.PriceDao;
+import com.tradesystem.product.Product;
+import com.tradesystem.product.ProductDao;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import lombok.Getter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills an empty database with buyers, suppliers, products, prices for every pair
+ * and a number of paid, open invoices per merchant, the state orders are paid from.
+ */
+@Component
+@Profile("benchmark")
+public class SyntheticDataGenerator {
+
+    private BuyerDao buyerDao;
+    private SupplierDao supplierDao;
+    private ProductDao productDao;
+    private PriceDao priceDao;
+    private InvoiceDao invoiceDao;
+
+
+    public SyntheticDataGenerator(BuyerDao buyerDao, SupplierDao supplierDao, ProductDao productDao,
+                                  PriceDao priceDao, InvoiceDao invoiceDao) {
+        this.buyerDao = buyerDao;
+        this.supplierDao = supplierDao;
+        this.productDao = productDao;
+        this.priceDao = priceDao;
+        this.invoiceDao = invoiceDao;
+    }
+
+
+    @Transactional
+    public SyntheticData generate(int buyers, int suppliers, int products, int invoicesPerMerchant, long seed) {
+        Random random = new Random(seed);
+        SyntheticData data = new SyntheticData();
+        LocalDate today = LocalDate.now();
+
+        for (int i = 0; i < products; i++) {
+            Product product = productDao.save(Product.builder()
+                    .product("Produkt " + i)
+                    .build());
+            data.productIds.add(product.getId());
+        }
+
+        for (int i = 0; i < buyers; i++) {
+            Buyer buyer = buyerDao.save(Buyer.builder()
+                    .name("Kupiec " + i)
+                    .build());
+            data.buyerIds.add(buyer.getId());
+
+            for (Long productId : data.productIds) {
+                priceDao.save(Price.builder()
+                        .buyer(buyer)
+                        .product(productDao.getOne(productId))
+                        .price(randomAmount(random, 100, 200))
+                        .build());
+            }
+            for (int j = 0; j < invoicesPerMerchant; j++) {
+                Invoice invoice = openInvoice("B-" + i + "-" + j, randomAmount(random, 5000, 50000), today);
+                invoice.setBuyer(buyer);
+                invoiceDao.save(invoice);
+            }
+        }
+
+        for (int i = 0; i < suppliers; i++) {
+            Supplier supplier = supplierDao.save(Supplier.builder()
+                    .name("Dostawca " + i)
+                    .build());
+            data.supplierIds.add(supplier.getId());
+
+            for (Long productId : data.productIds) {
+                priceDao.save(Price.builder()
+                        .supplier(supplier)
+                        .product(productDao.getOne(productId))
+                        .price(randomAmount(random, 50, 100))
+                        .build());
+            }
+            for (int j = 0; j < invoicesPerMerchant; j++) {
+                Invoice invoice = openInvoice("S-" + i + "-" + j, randomAmount(random, 5000, 50000), today);
+                invoice.setSupplier(supplier);
+                invoiceDao.save(invoice);
+            }
+        }
+        return data;
+    }
+
+    private Invoice openInvoice(String number, BigDecimal value, LocalDate date) {
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceNumber(number);
+        invoice.setDate(date);
+        invoice.setValue(value);
+        invoice.setAmountToUse(value);
+        invoice.setPaid(true);
+        invoice.setUsed(false);
+        return invoice;
+    }
+
+    private BigDecimal randomAmount(Random random, int from, int to) {
+        return BigDecimal.valueOf(from + random.nextInt(to - from));
+    }
+
+    @Getter
+    public static class SyntheticData {
+
+        private final List<Long> buyerIds = new ArrayList<>();
+        private final List<Long> supplierIds = new ArrayList<>();
+        private final List<Long> productIds = new ArrayList<>();
+    }
+
+}
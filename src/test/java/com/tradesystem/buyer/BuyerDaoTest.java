@@ -0,0 +1,120 @@
+package com.tradesystem.buyer;
+
+import com.tradesystem.invoice.Invoice;
+import com.tradesystem.invoice.InvoiceDao;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * BALANCE_SELECT has to give the balance calculateCurrentBalance used to add up
+ * from the three per-buyer invoice queries.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+@Transactional
+class BuyerDaoTest {
+
+    @Autowired
+    private BuyerDao buyerDao;
+    @Autowired
+    private InvoiceDao invoiceDao;
+    @Autowired
+    private EntityManager entityManager;
+
+
+    @Test
+    void shouldMatchPerBuyerBalance() {
+        Buyer withEverything = createBuyer("Kupiec 1");
+        createInvoice(withEverything, "100.00", "40.01", true, false, false, false);
+        createInvoice(withEverything, "0.01", "0.01", true, false, false, false);
+        createInvoice(withEverything, "50.00", "0.00", true, true, false, false);
+        createInvoice(withEverything, "-12.34", "-12.34", false, false, false, false);
+        createInvoice(withEverything, "77.77", "77.77", false, false, false, false);
+        createInvoice(withEverything, "33.33", "0.00", false, false, true, false);
+        createInvoice(withEverything, "20.00", "20.00", false, false, false, true);
+        createInvoice(withEverything, "10.00", "10.00", true, false, true, false);
+
+        Buyer onlyNegative = createBuyer("Kupiec 2");
+        createInvoice(onlyNegative, "-0.01", "-0.01", false, false, false, false);
+        createInvoice(onlyNegative, "-5.00", "-5.00", false, true, false, false);
+
+        Buyer onlyNotPaid = createBuyer("Kupiec 3");
+        createInvoice(onlyNotPaid, "999.99", "999.99", false, false, false, false);
+        createInvoice(onlyNotPaid, "0.00", "0.00", false, false, false, false);
+
+        createBuyer("Kupiec 4");
+
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (BuyerBalance buyerBalance : buyerDao.getBalances()) {
+            balances.put(buyerBalance.getBuyerId(), buyerBalance.getBalance());
+        }
+
+        List<Buyer> buyers = buyerDao.findAll();
+        assertEquals(buyers.size(), balances.size());
+        for (Buyer buyer : buyers) {
+            BigDecimal expected = calculateCurrentBalance(buyer);
+            BigDecimal actual = balances.get(buyer.getId());
+
+            assertEquals(0, expected.compareTo(actual), buyer.getName() + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    private BigDecimal calculateCurrentBalance(Buyer buyer) {
+        List<Invoice> notUsedInvoices = invoiceDao.getBuyerNotUsedInvoices(buyer.getId());
+
+        BigDecimal balance = BigDecimal.valueOf(0);
+
+        for (Invoice invoice : notUsedInvoices) {
+            if (invoice.isCreatedToOrder()) {
+                balance = balance.subtract(invoice.getValue());
+            }
+            balance = balance.add(invoice.getAmountToUse());
+        }
+
+        Optional<Invoice> negativeInvoice = invoiceDao.getBuyerNegativeInvoice(buyer.getId());
+        if (negativeInvoice.isPresent()) {
+            balance = balance.add(negativeInvoice.get().getAmountToUse());
+        }
+
+        Optional<List<Invoice>> notPaidInvoices = invoiceDao.getBuyerNotPaidInvoices(buyer.getId());
+        if (notPaidInvoices.isPresent()) {
+            for (Invoice invoice : notPaidInvoices.get()) {
+                balance = balance.subtract(invoice.getValue());
+            }
+        }
+        return balance;
+    }
+
+    private Buyer createBuyer(String name) {
+        return buyerDao.save(Buyer.builder().name(name).currentBalance(BigDecimal.ZERO).build());
+    }
+
+    private void createInvoice(Buyer buyer, String value, String amountToUse, boolean isPaid, boolean isUsed,
+                               boolean isCreatedToOrder, boolean toEqualizeNegativeInvoice) {
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceNumber("FV " + buyer.getName());
+        invoice.setDate(LocalDate.of(2019, 3, 1));
+        invoice.setBuyer(buyer);
+        invoice.setValue(new BigDecimal(value));
+        invoice.setAmountToUse(new BigDecimal(amountToUse));
+        invoice.setPaid(isPaid);
+        invoice.setUsed(isUsed);
+        invoice.setCreatedToOrder(isCreatedToOrder);
+        invoice.setToEqualizeNegativeInvoice(toEqualizeNegativeInvoice);
+        invoiceDao.save(invoice);
+    }
+}
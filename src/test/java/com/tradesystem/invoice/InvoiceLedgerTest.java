@@ -0,0 +1,147 @@
+package com.tradesystem.invoice;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.buyer.BuyerDto;
+import com.tradesystem.metrics.RequestMetrics;
+import com.tradesystem.order.CreateOrderRequest;
+import com.tradesystem.order.OrderService;
+import com.tradesystem.orderdetails.OrderDetailsDto;
+import com.tradesystem.product.ProductDto;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import com.tradesystem.supplier.SupplierDto;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The open invoices of an order's merchants are read once per transaction, so an
+ * order with many lines runs as many invoice queries as an order with one line.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+class InvoiceLedgerTest {
+
+    private static final int LINES = 10;
+    private static final LocalDate DATE = LocalDate.of(2018, 3, 5);
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private InvoiceService invoiceService;
+    @Autowired
+    private BuyerDao buyerDao;
+    @Autowired
+    private SupplierDao supplierDao;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+
+    @Test
+    void shouldReadInvoicesOncePerOrder() {
+        Buyer buyer = buyerDao.save(Buyer.builder()
+                .name("Kupiec wielu pozycji")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        Supplier supplier = supplierDao.save(Supplier.builder()
+                .name("Dostawca wielu pozycji")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        // lines of one order are paid from several invoices, so the allocation moves between them
+        for (int i = 0; i < 2 * LINES; i++) {
+            invoiceService.createInvoice(invoiceDto("FV kupca pozycji " + i)
+                    .buyer(BuyerDto.builder().id(buyer.getId()).build())
+                    .build());
+            invoiceService.createInvoice(invoiceDto("FV dostawcy pozycji " + i)
+                    .supplier(SupplierDto.builder().id(supplier.getId()).build())
+                    .build());
+        }
+
+        OrderStatements oneLine = createOrder(buyer, supplier, 1);
+        OrderStatements manyLines = createOrder(buyer, supplier, LINES);
+
+        assertEquals(oneLine.invoiceQueries, manyLines.invoiceQueries);
+        assertTrue(oneLine.invoiceQueries > 0);
+        // further lines only add their own batched writes, so ten lines cost less than two orders of one
+        assertTrue(manyLines.statements < 2 * oneLine.statements,
+                "Zapytania: " + oneLine.statements + " dla jednej pozycji, " + manyLines.statements + " dla " + LINES);
+    }
+
+    private OrderStatements createOrder(Buyer buyer, Supplier supplier, int lines) {
+        List<OrderDetailsDto> orderDetails = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            orderDetails.add(OrderDetailsDto.builder()
+                    .quantity(BigDecimal.ONE)
+                    .typedSoldPrice(new BigDecimal("70"))
+                    .typedBoughtPrice(new BigDecimal("60"))
+                    .transportNumber("TR-P" + lines + "-" + i)
+                    .product(ProductDto.builder().id(1L).build())
+                    .build());
+        }
+        CreateOrderRequest createOrderRequest = new CreateOrderRequest();
+        createOrderRequest.setDate(DATE);
+        createOrderRequest.setBuyerId(buyer.getId());
+        createOrderRequest.setSupplierId(supplier.getId());
+        createOrderRequest.setOrderDetails(orderDetails);
+
+        statistics.clear();
+        RequestMetrics.start();
+        orderService.createOrder(createOrderRequest);
+        RequestMetrics metrics = RequestMetrics.stop();
+
+        long invoiceQueries = 0;
+        for (String query : statistics.getQueries()) {
+            if (query.toLowerCase().contains("from invoices")) {
+                invoiceQueries += statistics.getQueryStatistics(query).getExecutionCount();
+            }
+        }
+        return new OrderStatements(metrics.getStatements(), invoiceQueries);
+    }
+
+    private InvoiceDto.InvoiceDtoBuilder invoiceDto(String invoiceNumber) {
+        return InvoiceDto.builder()
+                .invoiceNumber(invoiceNumber)
+                .date(DATE)
+                .value(new BigDecimal("100.00"))
+                .amountToUse(new BigDecimal("100.00"))
+                .isPaid(true);
+    }
+
+    private static class OrderStatements {
+
+        private final int statements;
+        private final long invoiceQueries;
+
+        private OrderStatements(int statements, long invoiceQueries) {
+            this.statements = statements;
+            this.invoiceQueries = invoiceQueries;
+        }
+    }
+}
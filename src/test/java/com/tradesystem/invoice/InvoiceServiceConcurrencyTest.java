@@ -0,0 +1,125 @@
+package com.tradesystem.invoice;
+
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import com.tradesystem.supplier.SupplierDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Paying and creating invoices of one merchant from many threads at once has to
+ * spend its negative invoice exactly once per invoice, no update may be lost.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+class InvoiceServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int PAYMENTS = 40;
+    private static final int CREATED = 40;
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+    private static final LocalDate DATE = LocalDate.of(2018, 1, 10);
+
+    @Autowired
+    private InvoiceService invoiceService;
+    @Autowired
+    private InvoiceDao invoiceDao;
+    @Autowired
+    private SupplierDao supplierDao;
+
+
+    @Test
+    void shouldSpendNegativeInvoiceOncePerInvoice() throws Exception {
+        Supplier supplier = supplierDao.save(Supplier.builder()
+                .name("Dostawca współbieżny")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        SupplierDto supplierDto = SupplierDto.builder().id(supplier.getId()).build();
+
+        BigDecimal negativeAmount = AMOUNT.multiply(BigDecimal.valueOf(PAYMENTS + CREATED)).negate();
+        Invoice negativeInvoice = invoiceDao.save(Invoice.builder()
+                .invoiceNumber("Negatywna")
+                .date(DATE)
+                .value(negativeAmount)
+                .amountToUse(negativeAmount)
+                .supplier(supplier)
+                .build());
+
+        List<Long> notPaidIds = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            notPaidIds.add(invoiceService.createInvoice(invoiceDto(supplierDto, "FV nieopłacona " + i, false)).getId());
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Long id : notPaidIds) {
+            tasks.add(() -> {
+                start.await();
+                invoiceService.payForInvoice(id);
+                return null;
+            });
+        }
+        for (int i = 0; i < CREATED; i++) {
+            InvoiceDto invoiceDto = invoiceDto(supplierDto, "FV opłacona " + i, true);
+            tasks.add(() -> {
+                start.await();
+                invoiceService.createInvoice(invoiceDto);
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Invoice spentNegativeInvoice = invoiceDao.findById(negativeInvoice.getId())
+                .orElseThrow(RuntimeException::new);
+        assertEquals(0, spentNegativeInvoice.getAmountToUse().signum());
+        assertTrue(spentNegativeInvoice.isUsed());
+        assertFalse(invoiceDao.getSupplierNegativeInvoice(supplier.getId()).isPresent());
+
+        BigDecimal leftToUse = BigDecimal.ZERO;
+        for (Invoice invoice : invoiceDao.getSupplierMonthInvoices(supplier.getId(), DATE.getMonthValue(), DATE.getYear())) {
+            if (invoice.getAmountToUse().signum() > 0) {
+                leftToUse = leftToUse.add(invoice.getAmountToUse());
+            }
+        }
+        assertEquals(0, leftToUse.signum(), "Niewykorzystane: " + leftToUse);
+    }
+
+    private InvoiceDto invoiceDto(SupplierDto supplierDto, String invoiceNumber, boolean isPaid) {
+        return InvoiceDto.builder()
+                .invoiceNumber(invoiceNumber)
+                .date(DATE)
+                .value(AMOUNT)
+                .amountToUse(AMOUNT)
+                .isPaid(isPaid)
+                .supplier(supplierDto)
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.tradesystem.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    private static final List<String> EDGE_CASES = Arrays.asList(
+            "0.005", "0.015", "0.025", "-0.005", "-0.015", "2.675", "1.005", "-2.675",
+            "0.004999", "0.0050001", "999999999.995", "-999999999.995", "0.01", "-0.01", "0");
+
+    @Test
+    void shouldRoundLikeStoredAmounts() {
+        for (String value : EDGE_CASES) {
+            BigDecimal amount = new BigDecimal(value);
+
+            assertEquals(scaled(amount), Money.of(amount).toBigDecimal(), value);
+        }
+    }
+
+    @Test
+    void shouldSumEdgeCasesLikeBigDecimal() {
+        BigDecimal bigDecimalSum = BigDecimal.ZERO;
+        Money moneySum = Money.ZERO;
+
+        for (String value : EDGE_CASES) {
+            BigDecimal amount = new BigDecimal(value);
+            bigDecimalSum = bigDecimalSum.add(scaled(amount));
+            moneySum = moneySum.add(Money.of(amount));
+        }
+
+        assertEquals(bigDecimalSum, moneySum.toBigDecimal());
+    }
+
+    @Test
+    void shouldSumManySmallAmountsLikeBigDecimal() {
+        Random random = new Random(42);
+        BigDecimal bigDecimalSum = BigDecimal.ZERO;
+        Money moneySum = Money.ZERO;
+
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(2_000_001) - 1_000_000, 3);
+            bigDecimalSum = bigDecimalSum.add(scaled(amount));
+            moneySum = moneySum.add(Money.of(amount));
+        }
+
+        assertEquals(bigDecimalSum, moneySum.toBigDecimal());
+    }
+
+    @Test
+    void shouldAllocateOrderOverInvoicesLikeBigDecimal() {
+        List<BigDecimal> invoices = new ArrayList<>(Arrays.asList(
+                new BigDecimal("0.01"), new BigDecimal("10.005"), new BigDecimal("2.675"), new BigDecimal("100.00")));
+        BigDecimal quantity = new BigDecimal("3.333");
+        BigDecimal price = new BigDecimal("12.345");
+        BigDecimal orderValue = quantity.multiply(price).setScale(2, RoundingMode.HALF_UP);
+
+        BigDecimal bigDecimalLeft = orderValue;
+        Money moneyLeft = Money.of(orderValue);
+
+        for (BigDecimal invoice : invoices) {
+            BigDecimal stored = scaled(invoice);
+            BigDecimal bigDecimalLeftover = stored.subtract(bigDecimalLeft);
+            Money moneyLeftover = Money.of(stored).subtract(moneyLeft);
+
+            assertEquals(bigDecimalLeftover.signum(), moneyLeftover.signum());
+            assertEquals(bigDecimalLeftover, moneyLeftover.toBigDecimal());
+
+            bigDecimalLeft = bigDecimalLeft.subtract(stored).max(BigDecimal.ZERO.setScale(2));
+            moneyLeft = moneyLeft.subtract(Money.of(stored));
+            if (moneyLeft.signum() < 0) {
+                moneyLeft = Money.ZERO;
+            }
+            assertEquals(bigDecimalLeft, moneyLeft.toBigDecimal());
+        }
+        assertEquals(bigDecimalLeft.negate(), moneyLeft.negate().toBigDecimal());
+    }
+
+    @Test
+    void shouldFailInsteadOfOverflowing() {
+        Money max = Money.ofMinorUnits(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.add(Money.ofMinorUnits(1)));
+    }
+
+    private static BigDecimal scaled(BigDecimal amount) {
+        return amount.setScale(Money.SCALE, RoundingMode.HALF_UP);
+    }
+}
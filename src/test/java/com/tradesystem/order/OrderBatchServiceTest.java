@@ -0,0 +1,126 @@
+package com.tradesystem.order;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.buyer.BuyerDto;
+import com.tradesystem.orderdetails.OrderDetails;
+import com.tradesystem.orderdetails.OrderDetailsDto;
+import com.tradesystem.price.PriceDto;
+import com.tradesystem.price.PriceService;
+import com.tradesystem.product.Product;
+import com.tradesystem.product.ProductDao;
+import com.tradesystem.product.ProductDto;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import com.tradesystem.supplier.SupplierDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A batch row has to be stored the same way /order/create stores the same order:
+ * list prices are used for the sums, the typed prices are kept as they were sent.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+class OrderBatchServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2015, 7, 3);
+
+    @Autowired
+    private OrderBatchService orderBatchService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderDao orderDao;
+    @Autowired
+    private BuyerDao buyerDao;
+    @Autowired
+    private SupplierDao supplierDao;
+    @Autowired
+    private ProductDao productDao;
+    @Autowired
+    private PriceService priceService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+
+    @Test
+    void shouldStoreBatchRowLikeSingleOrder() {
+        Buyer buyer = buyerDao.save(Buyer.builder()
+                .name("Kupiec importu")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        Supplier supplier = supplierDao.save(Supplier.builder()
+                .name("Dostawca importu")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        Product product = productDao.save(Product.builder()
+                .product("Produkt importu")
+                .build());
+        priceService.createBuyerPrice(PriceDto.builder()
+                .price(new BigDecimal("120.50"))
+                .buyer(BuyerDto.builder().id(buyer.getId()).build())
+                .product(ProductDto.builder().id(product.getId()).build())
+                .build());
+        priceService.createSupplierPrice(PriceDto.builder()
+                .price(new BigDecimal("99.99"))
+                .supplier(SupplierDto.builder().id(supplier.getId()).build())
+                .product(ProductDto.builder().id(product.getId()).build())
+                .build());
+
+        CreateOrderRequest batchRequest = createOrderRequest(buyer, supplier, product);
+        List<OrderBatchRowResult> results = orderBatchService.createOrders(Collections.singletonList(batchRequest));
+        assertTrue(results.get(0).isSuccess(), results.get(0).getError());
+        Long batchOrderId = results.get(0).getOrderId();
+
+        Long singleOrderId = orderService.createOrder(createOrderRequest(buyer, supplier, product)).getId();
+
+        OrderDetails batchLine = getOnlyLine(batchOrderId);
+        OrderDetails singleLine = getOnlyLine(singleOrderId);
+
+        OrderDetailsDto sentLine = batchRequest.getOrderDetails().get(0);
+        assertEquals(0, sentLine.getTypedSoldPrice().signum());
+        assertEquals(0, sentLine.getTypedBoughtPrice().signum());
+
+        assertEquals(new BigDecimal("361.50"), batchLine.getBuyerSum());
+        assertEquals(new BigDecimal("299.97"), batchLine.getSupplierSum());
+        assertEquals(singleLine.getBuyerSum(), batchLine.getBuyerSum());
+        assertEquals(singleLine.getSupplierSum(), batchLine.getSupplierSum());
+    }
+
+    private OrderDetails getOnlyLine(Long orderId) {
+        return transactionTemplate.execute(status -> {
+            List<OrderDetails> orderDetails = orderDao.findById(orderId)
+                    .orElseThrow(RuntimeException::new)
+                    .getOrderDetails();
+            assertEquals(1, orderDetails.size());
+            return orderDetails.get(0);
+        });
+    }
+
+    private CreateOrderRequest createOrderRequest(Buyer buyer, Supplier supplier, Product product) {
+        OrderDetailsDto orderDetailsDto = OrderDetailsDto.builder()
+                .quantity(new BigDecimal("3"))
+                .typedSoldPrice(BigDecimal.ZERO)
+                .typedBoughtPrice(BigDecimal.ZERO)
+                .transportNumber("TR-2")
+                .product(ProductDto.builder().id(product.getId()).build())
+                .build();
+
+        CreateOrderRequest createOrderRequest = new CreateOrderRequest();
+        createOrderRequest.setDate(DATE);
+        createOrderRequest.setBuyerId(buyer.getId());
+        createOrderRequest.setSupplierId(supplier.getId());
+        createOrderRequest.setOrderDetails(Collections.singletonList(orderDetailsDto));
+        return createOrderRequest;
+    }
+}
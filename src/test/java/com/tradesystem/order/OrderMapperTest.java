@@ -0,0 +1,128 @@
+package com.tradesystem.order;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.metrics.RequestMetrics;
+import com.tradesystem.ordercomment.OrderComment;
+import com.tradesystem.orderdetails.OrderDetails;
+import com.tradesystem.orderdetails.OrderDetailsDao;
+import com.tradesystem.product.Product;
+import com.tradesystem.product.ProductDao;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * A month listing has to cost one query, however many orders, details, merchants,
+ * products and comments it shows.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+@Transactional
+class OrderMapperTest {
+
+    private static final int MONTH = 3;
+    private static final int YEAR = 2019;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderDao orderDao;
+    @Autowired
+    private OrderDetailsDao orderDetailsDao;
+    @Autowired
+    private BuyerDao buyerDao;
+    @Autowired
+    private SupplierDao supplierDao;
+    @Autowired
+    private ProductDao productDao;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Buyer buyer;
+
+
+    @BeforeEach
+    void setUp() {
+        Product product = productDao.save(Product.builder().product("Produkt").build());
+
+        for (int i = 0; i < 5; i++) {
+            Buyer orderBuyer = buyerDao.save(Buyer.builder().name("Kupiec " + i).currentBalance(BigDecimal.ZERO).build());
+            Supplier supplier = supplierDao.save(Supplier.builder().name("Dostawca " + i).currentBalance(BigDecimal.ZERO).build());
+            Order order = orderDao.save(Order.builder()
+                    .date(LocalDate.of(YEAR, MONTH, i + 1))
+                    .buyer(orderBuyer)
+                    .supplier(supplier)
+                    .build());
+
+            for (int j = 0; j <= i; j++) {
+                createOrderDetails(order, j % 2 == 0 ? product : null, j % 2 == 0);
+            }
+            if (i == 0) {
+                buyer = orderBuyer;
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldMapMonthOrdersWithOneQuery() {
+        RequestMetrics.start();
+        List<OrderDto> orders = orderMapper.fromRows(orderService.getMonthOrderRows(MONTH, YEAR));
+        RequestMetrics metrics = RequestMetrics.stop();
+
+        assertEquals(1, metrics.getStatements());
+        assertEquals(0, metrics.getEntityLoads());
+        assertEquals(5, orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            OrderDto order = orders.get(i);
+            assertEquals("Kupiec " + i, order.getBuyer().getName());
+            assertEquals("Dostawca " + i, order.getSupplier().getName());
+            assertEquals(i + 1, order.getOrderDetails().size());
+        }
+        assertNull(orders.get(1).getOrderDetails().get(1).getProduct());
+        assertNull(orders.get(1).getOrderDetails().get(1).getOrderComment());
+        assertEquals("Komentarz", orders.get(1).getOrderDetails().get(0).getOrderComment().getUserComment());
+    }
+
+    @Test
+    void shouldMapBuyerMonthOrdersWithOneQuery() {
+        RequestMetrics.start();
+        List<OrderDto> orders = orderMapper.fromRows(orderService.getBuyerMonthOrderRows(buyer.getId(), MONTH, YEAR));
+        RequestMetrics metrics = RequestMetrics.stop();
+
+        assertEquals(1, metrics.getStatements());
+        assertEquals(0, metrics.getEntityLoads());
+        assertEquals(1, orders.size());
+    }
+
+    private void createOrderDetails(Order order, Product product, boolean withComment) {
+        OrderDetails orderDetails = new OrderDetails();
+        orderDetails.setOrder(order);
+        orderDetails.setProduct(product);
+        orderDetails.setQuantity(BigDecimal.ONE);
+        orderDetails.setBuyerSum(BigDecimal.TEN);
+        orderDetails.setSupplierSum(BigDecimal.ONE);
+        if (withComment) {
+            OrderComment orderComment = new OrderComment();
+            orderComment.setUserComment("Komentarz");
+            orderDetails.setOrderComment(orderComment);
+        }
+        orderDetailsDao.save(orderDetails);
+    }
+}
@@ -0,0 +1,173 @@
+package com.tradesystem.order;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.buyer.BuyerDto;
+import com.tradesystem.invoice.Invoice;
+import com.tradesystem.invoice.InvoiceDao;
+import com.tradesystem.invoice.InvoiceDto;
+import com.tradesystem.invoice.InvoiceService;
+import com.tradesystem.orderdetails.OrderDetails;
+import com.tradesystem.orderdetails.OrderDetailsDto;
+import com.tradesystem.payment.PaymentDao;
+import com.tradesystem.product.ProductDto;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import com.tradesystem.supplier.SupplierDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Orders of one buyer and one supplier created from many threads at once have to
+ * spend their invoices exactly by the order sums, no invoice may be overdrawn.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+class OrderServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ORDERS = 40;
+    private static final int INVOICES = 5;
+    private static final BigDecimal INVOICE_VALUE = new BigDecimal("1000.00");
+    private static final BigDecimal SOLD_PRICE = new BigDecimal("100");
+    private static final BigDecimal BOUGHT_PRICE = new BigDecimal("90");
+    private static final LocalDate DATE = LocalDate.of(2018, 2, 10);
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private InvoiceService invoiceService;
+    @Autowired
+    private InvoiceDao invoiceDao;
+    @Autowired
+    private PaymentDao paymentDao;
+    @Autowired
+    private BuyerDao buyerDao;
+    @Autowired
+    private SupplierDao supplierDao;
+
+
+    @Test
+    void shouldPayOrdersExactlyFromInvoices() throws Exception {
+        Buyer buyer = buyerDao.save(Buyer.builder()
+                .name("Kupiec współbieżny")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        Supplier supplier = supplierDao.save(Supplier.builder()
+                .name("Dostawca zamówień współbieżnych")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+
+        for (int i = 0; i < INVOICES; i++) {
+            invoiceService.createInvoice(invoiceDto("FV kupca " + i)
+                    .buyer(BuyerDto.builder().id(buyer.getId()).build())
+                    .build());
+            invoiceService.createInvoice(invoiceDto("FV dostawcy " + i)
+                    .supplier(SupplierDto.builder().id(supplier.getId()).build())
+                    .build());
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Order>> tasks = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            CreateOrderRequest createOrderRequest = createOrderRequest(buyer, supplier, "TR-W" + i);
+            tasks.add(() -> {
+                start.await();
+                return orderService.createOrder(createOrderRequest);
+            });
+        }
+
+        List<Order> orders = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Order>> futures = new ArrayList<>();
+            for (Callable<Order> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Order> future : futures) {
+                orders.add(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        BigDecimal buyerSum = BigDecimal.ZERO;
+        BigDecimal supplierSum = BigDecimal.ZERO;
+        for (Order order : orders) {
+            for (OrderDetails orderDetails : order.getOrderDetails()) {
+                buyerSum = buyerSum.add(orderDetails.getBuyerSum());
+                supplierSum = supplierSum.add(orderDetails.getSupplierSum());
+
+                assertFalse(paymentDao.findBuyerPayment(orderDetails.getId()).isEmpty());
+                assertFalse(paymentDao.findSupplierPayment(orderDetails.getId()).isEmpty());
+            }
+        }
+        assertEquals(SOLD_PRICE.multiply(BigDecimal.valueOf(ORDERS)).compareTo(buyerSum), 0);
+        assertEquals(BOUGHT_PRICE.multiply(BigDecimal.valueOf(ORDERS)).compareTo(supplierSum), 0);
+
+        BigDecimal buyerLeft = BigDecimal.ZERO;
+        BigDecimal supplierLeft = BigDecimal.ZERO;
+        for (Invoice invoice : invoiceDao.findAll()) {
+            boolean isBuyers = invoice.getBuyer() != null && invoice.getBuyer().getId().equals(buyer.getId());
+            boolean isSuppliers = invoice.getSupplier() != null && invoice.getSupplier().getId().equals(supplier.getId());
+            if (!isBuyers && !isSuppliers) {
+                continue;
+            }
+            assertTrue(invoice.getAmountToUse().signum() >= 0,
+                    "Faktura " + invoice.getInvoiceNumber() + ": " + invoice.getAmountToUse());
+
+            if (isBuyers) {
+                buyerLeft = buyerLeft.add(invoice.getAmountToUse());
+            } else {
+                supplierLeft = supplierLeft.add(invoice.getAmountToUse());
+            }
+        }
+
+        BigDecimal invoicesValue = INVOICE_VALUE.multiply(BigDecimal.valueOf(INVOICES));
+        assertEquals(0, invoicesValue.subtract(buyerLeft).compareTo(buyerSum), "Zostało u kupca: " + buyerLeft);
+        assertEquals(0, invoicesValue.subtract(supplierLeft).compareTo(supplierSum), "Zostało u dostawcy: " + supplierLeft);
+    }
+
+    private InvoiceDto.InvoiceDtoBuilder invoiceDto(String invoiceNumber) {
+        return InvoiceDto.builder()
+                .invoiceNumber(invoiceNumber)
+                .date(DATE)
+                .value(INVOICE_VALUE)
+                .amountToUse(INVOICE_VALUE)
+                .isPaid(true);
+    }
+
+    private CreateOrderRequest createOrderRequest(Buyer buyer, Supplier supplier, String transportNumber) {
+        OrderDetailsDto orderDetailsDto = OrderDetailsDto.builder()
+                .quantity(BigDecimal.ONE)
+                .typedSoldPrice(SOLD_PRICE)
+                .typedBoughtPrice(BOUGHT_PRICE)
+                .transportNumber(transportNumber)
+                .product(ProductDto.builder().id(1L).build())
+                .build();
+
+        CreateOrderRequest createOrderRequest = new CreateOrderRequest();
+        createOrderRequest.setDate(DATE);
+        createOrderRequest.setBuyerId(buyer.getId());
+        createOrderRequest.setSupplierId(supplier.getId());
+        createOrderRequest.setOrderDetails(Collections.singletonList(orderDetailsDto));
+        return createOrderRequest;
+    }
+}
@@ -0,0 +1,86 @@
+package com.tradesystem.order;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.orderdetails.OrderDetailsDto;
+import com.tradesystem.product.ProductDto;
+import com.tradesystem.report.ReportAggregate;
+import com.tradesystem.report.ReportAggregateDao;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The first order of a month without a report_aggregates row has to create the row
+ * on the embedded database too, and later orders only add to it.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+class OrderServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2015, 6, 12);
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private BuyerDao buyerDao;
+    @Autowired
+    private SupplierDao supplierDao;
+    @Autowired
+    private ReportAggregateDao reportAggregateDao;
+
+
+    @Test
+    void shouldCreateOrderInMonthWithoutReportRow() {
+        Buyer buyer = buyerDao.save(Buyer.builder()
+                .name("Kupiec pustego miesiąca")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        Supplier supplier = supplierDao.save(Supplier.builder()
+                .name("Dostawca pustego miesiąca")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        assertFalse(reportAggregateDao.findByYearAndMonth(DATE.getYear(), DATE.getMonthValue()).isPresent());
+
+        orderService.createOrder(createOrderRequest(buyer, supplier));
+
+        ReportAggregate created = reportAggregateDao.findByYearAndMonth(DATE.getYear(), DATE.getMonthValue())
+                .orElseThrow(RuntimeException::new);
+        assertEquals(new BigDecimal("200.00"), created.getSoldValue());
+        assertEquals(new BigDecimal("180.00"), created.getBoughtValue());
+        assertEquals(new BigDecimal("2.00"), created.getSoldQuantity());
+
+        orderService.createOrder(createOrderRequest(buyer, supplier));
+
+        ReportAggregate updated = reportAggregateDao.findByYearAndMonth(DATE.getYear(), DATE.getMonthValue())
+                .orElseThrow(RuntimeException::new);
+        assertEquals(new BigDecimal("400.00"), updated.getSoldValue());
+        assertEquals(new BigDecimal("360.00"), updated.getBoughtValue());
+        assertEquals(new BigDecimal("4.00"), updated.getSoldQuantity());
+    }
+
+    private CreateOrderRequest createOrderRequest(Buyer buyer, Supplier supplier) {
+        OrderDetailsDto orderDetailsDto = OrderDetailsDto.builder()
+                .quantity(new BigDecimal("2"))
+                .typedSoldPrice(new BigDecimal("100"))
+                .typedBoughtPrice(new BigDecimal("90"))
+                .transportNumber("TR-1")
+                .product(ProductDto.builder().id(1L).build())
+                .build();
+
+        CreateOrderRequest createOrderRequest = new CreateOrderRequest();
+        createOrderRequest.setDate(DATE);
+        createOrderRequest.setBuyerId(buyer.getId());
+        createOrderRequest.setSupplierId(supplier.getId());
+        createOrderRequest.setOrderDetails(Collections.singletonList(orderDetailsDto));
+        return createOrderRequest;
+    }
+}
@@ -0,0 +1,153 @@
+package com.tradesystem.orderfact;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.order.Order;
+import com.tradesystem.orderdetails.OrderDetails;
+import com.tradesystem.orderdetails.OrderDetailsDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderFactStoreTest {
+
+    private static final LocalDate DATE = LocalDate.of(2021, 3, 15);
+
+    private OrderDetailsDao orderDetailsDao;
+    private PlatformTransactionManager transactionManager;
+    private OrderFactStore orderFactStore;
+
+    @BeforeEach
+    void setUp() {
+        orderDetailsDao = mock(OrderDetailsDao.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        orderFactStore = new OrderFactStore(orderDetailsDao, transactionManager);
+        ReflectionTestUtils.setField(orderFactStore, "maxMonths", 2);
+    }
+
+    @Test
+    void shouldLoadMonthInItsOwnTransaction() {
+        when(orderDetailsDao.getMonthFacts(3, 2021)).thenReturn(Collections.emptyList());
+
+        orderFactStore.getMonth(3, 2021);
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getValue().getPropagationBehavior());
+        assertTrue(definition.getValue().isReadOnly());
+    }
+
+    @Test
+    void shouldNotCacheMonthWhenWriteCommitsDuringLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        List<Object[]> staleRows = Collections.singletonList(row(1L, "10.00"));
+        List<Object[]> freshRows = new ArrayList<>(staleRows);
+        freshRows.add(row(2L, "5.00"));
+
+        when(orderDetailsDao.getMonthFacts(3, 2021))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    assertTrue(written.await(5, TimeUnit.SECONDS));
+                    return staleRows;
+                })
+                .thenReturn(freshRows);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<OrderFactPartition> load = executor.submit(() -> orderFactStore.getMonth(3, 2021));
+
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            orderFactStore.written(orderDetails(2L, "5.00"));
+            written.countDown();
+
+            assertEquals(1, load.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        OrderFactPartition reloaded = orderFactStore.getMonth(3, 2021);
+
+        assertEquals(2, reloaded.size());
+        assertEquals(new BigDecimal("15.00"), reloaded.getTotals().getQuantity());
+        verify(orderDetailsDao, times(2)).getMonthFacts(3, 2021);
+    }
+
+    @Test
+    void shouldApplyCommittedWriteToLoadedMonth() {
+        when(orderDetailsDao.getMonthFacts(3, 2021)).thenReturn(Collections.singletonList(row(1L, "10.00")));
+        orderFactStore.getMonth(3, 2021);
+
+        orderFactStore.written(orderDetails(2L, "5.00"));
+        OrderFactPartition partition = orderFactStore.getMonth(3, 2021);
+
+        assertEquals(2, partition.size());
+        verify(orderDetailsDao, times(1)).getMonthFacts(3, 2021);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedMonth() {
+        when(orderDetailsDao.getMonthFacts(anyInt(), anyInt())).thenReturn(Collections.emptyList());
+
+        OrderFactPartition january = orderFactStore.getMonth(1, 2021);
+        OrderFactPartition february = orderFactStore.getMonth(2, 2021);
+        assertSame(january, orderFactStore.getMonth(1, 2021));
+        orderFactStore.getMonth(3, 2021);
+
+        assertSame(january, orderFactStore.getMonth(1, 2021));
+        assertNotSame(february, orderFactStore.getMonth(2, 2021));
+        verify(orderDetailsDao, times(1)).getMonthFacts(1, 2021);
+        verify(orderDetailsDao, times(2)).getMonthFacts(2, 2021);
+        verify(orderDetailsDao, atLeastOnce()).getMonthFacts(3, 2021);
+    }
+
+    private Object[] row(Long id, String quantity) {
+        return new Object[]{id, DATE, 1L, 2L, 3L, new BigDecimal(quantity), BigDecimal.ZERO, BigDecimal.ZERO};
+    }
+
+    private OrderDetails orderDetails(Long id, String quantity) {
+        Buyer buyer = new Buyer();
+        buyer.setId(1L);
+        Order order = Order.builder()
+                .date(DATE)
+                .buyer(buyer)
+                .build();
+
+        OrderDetails orderDetails = new OrderDetails();
+        orderDetails.setId(id);
+        orderDetails.setOrder(order);
+        orderDetails.setQuantity(new BigDecimal(quantity));
+        orderDetails.setBuyerSum(BigDecimal.ZERO);
+        orderDetails.setSupplierSum(BigDecimal.ZERO);
+        return orderDetails;
+    }
+
+}
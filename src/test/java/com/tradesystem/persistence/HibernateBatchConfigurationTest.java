@@ -0,0 +1,52 @@
+package com.tradesystem.persistence;
+
+import com.tradesystem.cost.Cost;
+import com.tradesystem.metrics.RequestMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rows with ids from the pooled table generators have to be inserted in JDBC
+ * batches, one statement per BATCH_SIZE rows instead of one per row.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+@Transactional
+class HibernateBatchConfigurationTest {
+
+    private static final int ROWS = 3 * HibernateBatchConfiguration.BATCH_SIZE;
+
+    @Autowired
+    private EntityManager entityManager;
+
+
+    @Test
+    void shouldInsertRowsInBatches() {
+        RequestMetrics.start();
+        for (int i = 0; i < ROWS; i++) {
+            entityManager.persist(cost(i));
+        }
+        entityManager.flush();
+        RequestMetrics metrics = RequestMetrics.stop();
+
+        // one batch per BATCH_SIZE rows, and a select and an update of id_generators per block of ids
+        int batches = ROWS / HibernateBatchConfiguration.BATCH_SIZE;
+        int idBlocks = ROWS / IdGenerators.ALLOCATION_SIZE + 1;
+        assertTrue(metrics.getStatements() <= batches + 2 * idBlocks, "Zapytania: " + metrics.getStatements());
+    }
+
+    private Cost cost(int i) {
+        return Cost.builder()
+                .name("Koszt " + i)
+                .value(BigDecimal.TEN)
+                .date(LocalDate.of(2015, 8, 1))
+                .build();
+    }
+}
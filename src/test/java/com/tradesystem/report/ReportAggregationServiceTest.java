@@ -0,0 +1,182 @@
+package com.tradesystem.report;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.cost.Cost;
+import com.tradesystem.cost.CostDao;
+import com.tradesystem.invoice.Invoice;
+import com.tradesystem.invoice.InvoiceDao;
+import com.tradesystem.order.Order;
+import com.tradesystem.order.OrderDao;
+import com.tradesystem.orderdetails.OrderDetails;
+import com.tradesystem.orderdetails.OrderDetailsDao;
+import com.tradesystem.product.Product;
+import com.tradesystem.product.ProductDao;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The aggregate queries have to give the same month report as the per-entity sums
+ * ReportMonthService computed before.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+@Transactional
+class ReportAggregationServiceTest {
+
+    private static final int MONTH = 3;
+    private static final int YEAR = 2019;
+
+    @Autowired
+    private ReportAggregationService reportAggregationService;
+    @Autowired
+    private OrderDao orderDao;
+    @Autowired
+    private OrderDetailsDao orderDetailsDao;
+    @Autowired
+    private CostDao costDao;
+    @Autowired
+    private InvoiceDao invoiceDao;
+    @Autowired
+    private BuyerDao buyerDao;
+    @Autowired
+    private SupplierDao supplierDao;
+    @Autowired
+    private ProductDao productDao;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Buyer buyer;
+    private Supplier supplier;
+    private Product product;
+
+
+    @BeforeEach
+    void setUp() {
+        buyer = buyerDao.save(Buyer.builder().name("Kupiec").build());
+        supplier = supplierDao.save(Supplier.builder().name("Dostawca").build());
+        product = productDao.save(Product.builder().product("Produkt").build());
+
+        createOrder(LocalDate.of(YEAR, MONTH, 1), "1.01", "100.01", "90.99");
+        createOrder(LocalDate.of(YEAR, MONTH, 15), "3.33", "411.47", "399.99", "0.01", "0.01", "0.01");
+        createOrder(LocalDate.of(YEAR, MONTH, 31), "0.01", "0.01", "0.00", "12.5", "1234.56", "1111.11");
+        createOrder(LocalDate.of(YEAR, MONTH - 1, 28), "7", "700.00", "600.00");
+        createOrder(LocalDate.of(YEAR, MONTH + 1, 1), "9", "900.00", "800.00");
+
+        createCost(LocalDate.of(YEAR, MONTH, 2), "10.01");
+        createCost(LocalDate.of(YEAR, MONTH, 31), "0.99");
+        createCost(LocalDate.of(YEAR, MONTH + 1, 1), "50.00");
+
+        createInvoice(LocalDate.of(YEAR, MONTH, 3), "100.00", "40.01", false, false);
+        createInvoice(LocalDate.of(YEAR, MONTH, 4), "55.55", "0.00", false, true);
+        createInvoice(LocalDate.of(YEAR, MONTH, 5), "20.00", "20.00", true, false);
+        createInvoice(LocalDate.of(YEAR, MONTH, 6), "-5.00", "-5.00", false, false);
+        createInvoice(LocalDate.of(YEAR, MONTH + 1, 1), "70.00", "70.00", false, false);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldMatchPerEntitySums() {
+        Report expected = perEntityReport();
+        Report actual = reportAggregationService.aggregateMonth(MONTH, YEAR).toReport("Miesięczny");
+
+        assertSameAmount(expected.getSoldValue(), actual.getSoldValue());
+        assertSameAmount(expected.getBoughtValue(), actual.getBoughtValue());
+        assertSameAmount(expected.getSoldQuantity(), actual.getSoldQuantity());
+        assertSameAmount(expected.getAverageEarningsPerM3(), actual.getAverageEarningsPerM3());
+        assertSameAmount(expected.getIncome(), actual.getIncome());
+        assertSameAmount(expected.getSumCosts(), actual.getSumCosts());
+        assertSameAmount(expected.getBuyersNotPaidInvoices(), actual.getBuyersNotPaidInvoices());
+    }
+
+    private Report perEntityReport() {
+        BigDecimal soldValue = BigDecimal.ZERO;
+        BigDecimal boughtValue = BigDecimal.ZERO;
+        BigDecimal soldQuantity = BigDecimal.ZERO;
+
+        for (Order order : orderDao.getMonthOrders(MONTH, YEAR)) {
+            for (OrderDetails orderDetail : order.getOrderDetails()) {
+                soldValue = soldValue.add(orderDetail.getBuyerSum());
+                boughtValue = boughtValue.add(orderDetail.getSupplierSum());
+                soldQuantity = soldQuantity.add(orderDetail.getQuantity());
+            }
+        }
+
+        BigDecimal sumCosts = BigDecimal.ZERO;
+        for (Cost cost : costDao.getMonthCosts(MONTH, YEAR)) {
+            sumCosts = sumCosts.add(cost.getValue().multiply(BigDecimal.valueOf(-1)));
+        }
+
+        BigDecimal buyersNotPaidInvoices = BigDecimal.ZERO;
+        Optional<List<Invoice>> notCreatedToOrder = invoiceDao.getBuyersMonthNotPaidInvoicesNotCreatedToOrder(MONTH, YEAR);
+        for (Invoice invoice : notCreatedToOrder.orElseThrow(RuntimeException::new)) {
+            buyersNotPaidInvoices = buyersNotPaidInvoices.add(invoice.getAmountToUse());
+        }
+        Optional<List<Invoice>> createdToOrder = invoiceDao.getBuyersMonthNotPaidInvoicesCreatedToOrder(MONTH, YEAR);
+        for (Invoice invoice : createdToOrder.orElseThrow(RuntimeException::new)) {
+            buyersNotPaidInvoices = buyersNotPaidInvoices.add(invoice.getValue());
+        }
+
+        BigDecimal averageSold = soldValue.divide(soldQuantity, RoundingMode.HALF_EVEN);
+        BigDecimal averagePurchase = boughtValue.divide(soldQuantity, RoundingMode.HALF_EVEN);
+
+        return Report.builder()
+                .soldValue(soldValue)
+                .boughtValue(boughtValue)
+                .soldQuantity(soldQuantity)
+                .averageEarningsPerM3(averageSold.subtract(averagePurchase))
+                .income(soldValue.subtract(boughtValue))
+                .buyersNotPaidInvoices(buyersNotPaidInvoices)
+                .sumCosts(sumCosts)
+                .build();
+    }
+
+    private void createOrder(LocalDate date, String... lines) {
+        Order order = orderDao.save(Order.builder().date(date).buyer(buyer).supplier(supplier).build());
+
+        for (int i = 0; i < lines.length; i += 3) {
+            OrderDetails orderDetails = new OrderDetails();
+            orderDetails.setOrder(order);
+            orderDetails.setProduct(product);
+            orderDetails.setQuantity(new BigDecimal(lines[i]));
+            orderDetails.setBuyerSum(new BigDecimal(lines[i + 1]));
+            orderDetails.setSupplierSum(new BigDecimal(lines[i + 2]));
+            orderDetailsDao.save(orderDetails);
+        }
+    }
+
+    private void createCost(LocalDate date, String value) {
+        costDao.save(Cost.builder().name("Koszt").date(date).value(new BigDecimal(value)).build());
+    }
+
+    private void createInvoice(LocalDate date, String value, String amountToUse, boolean isPaid, boolean isCreatedToOrder) {
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceNumber("FV " + date);
+        invoice.setDate(date);
+        invoice.setBuyer(buyer);
+        invoice.setValue(new BigDecimal(value));
+        invoice.setAmountToUse(new BigDecimal(amountToUse));
+        invoice.setPaid(isPaid);
+        invoice.setCreatedToOrder(isCreatedToOrder);
+        invoiceDao.save(invoice);
+    }
+
+    private static void assertSameAmount(BigDecimal expected, BigDecimal actual) {
+        assertEquals(0, expected.compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
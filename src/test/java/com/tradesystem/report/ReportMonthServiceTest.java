@@ -0,0 +1,63 @@
+package com.tradesystem.report;
+
+import com.tradesystem.money.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportMonthServiceTest {
+
+    private ReportService reportService;
+    private ReportLedgerService reportLedgerService;
+    private ReportMonthService reportMonthService;
+
+    @BeforeEach
+    void setUp() {
+        reportService = mock(ReportService.class);
+        reportLedgerService = mock(ReportLedgerService.class);
+        reportMonthService = new ReportMonthService(reportService, reportLedgerService);
+
+        when(reportLedgerService.getWatermark(3, 2021)).thenReturn(7L);
+    }
+
+    @Test
+    void shouldServeFreshSnapshotWithoutSumming() {
+        Report snapshot = new Report();
+        when(reportService.findFreshSnapshot(ReportPeriodType.MONTH, 2021, 3, 7L)).thenReturn(snapshot);
+
+        assertSame(snapshot, reportMonthService.generateMonthReport(3, 2021));
+        assertSame(snapshot, reportMonthService.findFreshMonthReport(3, 2021));
+        verify(reportLedgerService, never()).getMonthAggregation(anyInt(), anyInt());
+        verify(reportService, never()).saveSnapshot(any(), any(), anyInt(), anyInt(), anyLong());
+    }
+
+    @Test
+    void shouldRegenerateStaleSnapshotAtCurrentWatermark() {
+        Report regenerated = new Report();
+        when(reportLedgerService.getMonthAggregation(3, 2021)).thenReturn(ReportAggregation.builder()
+                .soldValue(Money.of(new BigDecimal("100.00")))
+                .boughtValue(Money.of(new BigDecimal("80.00")))
+                .soldQuantity(new BigDecimal("10.00"))
+                .sumCosts(Money.ZERO)
+                .buyersNotPaidInvoices(Money.ZERO)
+                .build());
+        when(reportService.saveSnapshot(any(Report.class), eq(ReportPeriodType.MONTH), eq(2021), eq(3), eq(7L)))
+                .thenReturn(regenerated);
+
+        assertNull(reportMonthService.findFreshMonthReport(3, 2021));
+        assertSame(regenerated, reportMonthService.generateMonthReport(3, 2021));
+    }
+
+}
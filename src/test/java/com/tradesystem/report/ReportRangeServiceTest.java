@@ -0,0 +1,116 @@
+package com.tradesystem.report;
+
+import com.tradesystem.buyer.Buyer;
+import com.tradesystem.buyer.BuyerDao;
+import com.tradesystem.cost.CostDto;
+import com.tradesystem.cost.CostService;
+import com.tradesystem.order.CreateOrderRequest;
+import com.tradesystem.order.OrderService;
+import com.tradesystem.orderdetails.OrderDetailsDto;
+import com.tradesystem.product.ProductDto;
+import com.tradesystem.supplier.Supplier;
+import com.tradesystem.supplier.SupplierDao;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A range report over several years has to give the sums of the month reports
+ * of its months, whichever worker aggregated which month.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+class ReportRangeServiceTest {
+
+    private static final List<LocalDate> ORDER_DATES = Arrays.asList(
+            LocalDate.of(2010, 3, 15), LocalDate.of(2010, 12, 31), LocalDate.of(2011, 1, 1),
+            LocalDate.of(2011, 7, 20), LocalDate.of(2012, 2, 29), LocalDate.of(2012, 11, 5));
+
+    @Autowired
+    private ReportRangeService reportRangeService;
+    @Autowired
+    private ReportMonthService reportMonthService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CostService costService;
+    @Autowired
+    private BuyerDao buyerDao;
+    @Autowired
+    private SupplierDao supplierDao;
+
+
+    @Test
+    void shouldMergeMonthsOfSeveralYears() {
+        Buyer buyer = buyerDao.save(Buyer.builder()
+                .name("Kupiec raportu okresowego")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+        Supplier supplier = supplierDao.save(Supplier.builder()
+                .name("Dostawca raportu okresowego")
+                .currentBalance(BigDecimal.ZERO)
+                .build());
+
+        for (int i = 0; i < ORDER_DATES.size(); i++) {
+            orderService.createOrder(createOrderRequest(buyer, supplier, ORDER_DATES.get(i), i + 1));
+        }
+        costService.createCost(CostDto.builder()
+                .name("Koszt raportu okresowego")
+                .value(new BigDecimal("12.34"))
+                .date(LocalDate.of(2011, 7, 1))
+                .build());
+
+        Report range = reportRangeService.generateRangeReport(YearMonth.of(2010, 1), YearMonth.of(2012, 12));
+
+        BigDecimal soldValue = BigDecimal.ZERO;
+        BigDecimal boughtValue = BigDecimal.ZERO;
+        BigDecimal soldQuantity = BigDecimal.ZERO;
+        BigDecimal sumCosts = BigDecimal.ZERO;
+        BigDecimal buyersNotPaidInvoices = BigDecimal.ZERO;
+        for (LocalDate date : ORDER_DATES) {
+            Report month = reportMonthService.generateMonthReport(date.getMonthValue(), date.getYear());
+            soldValue = soldValue.add(month.getSoldValue());
+            boughtValue = boughtValue.add(month.getBoughtValue());
+            soldQuantity = soldQuantity.add(month.getSoldQuantity());
+            sumCosts = sumCosts.add(month.getSumCosts());
+            buyersNotPaidInvoices = buyersNotPaidInvoices.add(month.getBuyersNotPaidInvoices());
+        }
+
+        // 1 + 2 + ... + 6 m3 at 100 and 90
+        assertEquals(0, new BigDecimal("2100").compareTo(range.getSoldValue()));
+        assertEquals(0, new BigDecimal("1890").compareTo(range.getBoughtValue()));
+        assertEquals(0, new BigDecimal("-12.34").compareTo(range.getSumCosts()));
+
+        assertEquals(0, soldValue.compareTo(range.getSoldValue()));
+        assertEquals(0, boughtValue.compareTo(range.getBoughtValue()));
+        assertEquals(0, soldQuantity.compareTo(range.getSoldQuantity()));
+        assertEquals(0, sumCosts.compareTo(range.getSumCosts()));
+        assertEquals(0, buyersNotPaidInvoices.compareTo(range.getBuyersNotPaidInvoices()));
+        assertEquals(0, soldValue.subtract(boughtValue).compareTo(range.getIncome()));
+    }
+
+    private CreateOrderRequest createOrderRequest(Buyer buyer, Supplier supplier, LocalDate date, int quantity) {
+        OrderDetailsDto orderDetailsDto = OrderDetailsDto.builder()
+                .quantity(BigDecimal.valueOf(quantity))
+                .typedSoldPrice(new BigDecimal("100"))
+                .typedBoughtPrice(new BigDecimal("90"))
+                .transportNumber("TR-O" + quantity)
+                .product(ProductDto.builder().id(1L).build())
+                .build();
+
+        CreateOrderRequest createOrderRequest = new CreateOrderRequest();
+        createOrderRequest.setDate(date);
+        createOrderRequest.setBuyerId(buyer.getId());
+        createOrderRequest.setSupplierId(supplier.getId());
+        createOrderRequest.setOrderDetails(Collections.singletonList(orderDetailsDto));
+        return createOrderRequest;
+    }
+}
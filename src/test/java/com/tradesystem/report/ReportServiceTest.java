@@ -0,0 +1,86 @@
+package com.tradesystem.report;
+
+import com.tradesystem.pagination.EntityStreamer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportServiceTest {
+
+    private ReportDao reportDao;
+    private ReportService reportService;
+
+    @BeforeEach
+    void setUp() {
+        reportDao = mock(ReportDao.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        reportService = new ReportService(reportDao, mock(EntityStreamer.class), transactionManager);
+    }
+
+    @Test
+    void shouldReturnSnapshotWhileWatermarkIsUnchanged() {
+        Report snapshot = snapshot(7L);
+        when(reportDao.findByPeriodTypeAndYearAndMonth(ReportPeriodType.MONTH, 2021, 3)).thenReturn(snapshot);
+
+        assertSame(snapshot, reportService.findFreshSnapshot(ReportPeriodType.MONTH, 2021, 3, 7L));
+    }
+
+    @Test
+    void shouldNotReturnSnapshotAfterLedgerChanged() {
+        when(reportDao.findByPeriodTypeAndYearAndMonth(ReportPeriodType.MONTH, 2021, 3)).thenReturn(snapshot(7L));
+
+        assertNull(reportService.findFreshSnapshot(ReportPeriodType.MONTH, 2021, 3, 8L));
+    }
+
+    @Test
+    void shouldNotReturnMissingSnapshot() {
+        assertNull(reportService.findFreshSnapshot(ReportPeriodType.YEAR, 2021, 0, 0L));
+    }
+
+    @Test
+    void shouldReplaceSnapshotStoredConcurrently() {
+        Report concurrentSnapshot = snapshot(5L);
+        when(reportDao.findByPeriodTypeAndYearAndMonth(ReportPeriodType.MONTH, 2021, 3))
+                .thenReturn(null)
+                .thenReturn(concurrentSnapshot);
+        when(reportDao.saveAndFlush(any(Report.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Report report = Report.builder()
+                .soldValue(new BigDecimal("100.00"))
+                .type("MARCH")
+                .build();
+        Report saved = reportService.saveSnapshot(report, ReportPeriodType.MONTH, 2021, 3, 6L);
+
+        assertSame(concurrentSnapshot, saved);
+        assertEquals(new BigDecimal("100.00"), saved.getSoldValue());
+        assertEquals(Long.valueOf(6L), saved.getSourceWatermark());
+        verify(reportDao, times(2)).saveAndFlush(any(Report.class));
+    }
+
+    private Report snapshot(Long watermark) {
+        return Report.builder()
+                .periodType(ReportPeriodType.MONTH)
+                .year(2021)
+                .month(3)
+                .sourceWatermark(watermark)
+                .build();
+    }
+
+}
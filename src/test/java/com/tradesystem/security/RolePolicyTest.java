@@ -0,0 +1,62 @@
+package com.tradesystem.security;
+
+import com.tradesystem.TradesystemApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every endpoint of the application has to declare its role policy, that is the handler
+ * method or its controller is annotated with UserRole, AdminRole or PublicEndpoint,
+ * so a new endpoint cannot be left open by mistake.
+ */
+@SpringBootTest(properties = "jwt.secret=test")
+class RolePolicyTest {
+
+    private static final String APPLICATION_PACKAGE = TradesystemApplication.class.getPackage().getName();
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+
+    @Test
+    void everyEndpointShouldHaveRolePolicy() {
+        List<String> unprotected = new ArrayList<>();
+        int endpoints = 0;
+
+        for (RequestMappingHandlerMapping handlerMapping
+                : applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+                HandlerMethod handlerMethod = entry.getValue();
+                if (!handlerMethod.getBeanType().getName().startsWith(APPLICATION_PACKAGE)) {
+                    continue;
+                }
+                endpoints++;
+                if (!hasRolePolicy(handlerMethod)) {
+                    unprotected.add(entry.getKey() + " -> " + handlerMethod);
+                }
+            }
+        }
+
+        assertTrue(endpoints > 0, "Nie znaleziono endpointów");
+        assertTrue(unprotected.isEmpty(), "Endpointy bez określonej roli: " + unprotected);
+    }
+
+    private boolean hasRolePolicy(HandlerMethod handlerMethod) {
+        return AnnotatedElementUtils.hasAnnotation(handlerMethod.getMethod(), PreAuthorize.class)
+                || AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), PreAuthorize.class);
+    }
+
+}